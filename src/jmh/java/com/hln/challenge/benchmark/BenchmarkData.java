@@ -0,0 +1,91 @@
+package com.hln.challenge.benchmark;
+
+import com.hln.challenge.ChallengeApplication;
+import com.hln.challenge.persistence.models.Wood;
+import com.hln.challenge.persistence.models.WoodId;
+import com.hln.challenge.persistence.models.WoodType;
+import com.hln.challenge.persistence.repository.WoodJdbcRepository;
+import com.hln.challenge.persistence.repository.WoodTypeRepository;
+import com.hln.challenge.service.index.WoodPriceIndex;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Shared fixtures for the benchmarks: seeded synthetic woods and an application context on a private H2 database.
+ */
+public final class BenchmarkData {
+
+    // Prices are drawn uniformly from $1.00 to $999.99
+    private static final int MIN_CENTS = 100;
+    private static final int MAX_CENTS = 99_999;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Starts the application without a web server, logging SQL off, on an H2 database of its own.
+     */
+    public static ConfigurableApplicationContext startContext() {
+        return new SpringApplicationBuilder(ChallengeApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:benchmark-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN")
+                .run();
+    }
+
+    /**
+     * A TDF file with a header and {@code rows} distinct ids.
+     */
+    public static byte[] tdf(int rows, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        StringBuilder content = new StringBuilder(rows * 16).append("id\tprice\n");
+        for (int id = 1; id <= rows; id++) {
+            int cents = random.nextInt(MIN_CENTS, MAX_CENTS + 1);
+            content.append(id).append("\t$").append(cents / 100).append('.')
+                    .append(cents % 100 / 10).append(cents % 10).append('\n');
+        }
+        return content.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public static List<Wood> woods(String type, int rows, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        WoodType woodType = new WoodType(type);
+        List<Wood> woods = new ArrayList<>(rows);
+        for (long id = 1; id <= rows; id++) {
+            woods.add(new Wood(new WoodId(type, id), woodType, BigDecimal.valueOf(random.nextInt(MIN_CENTS, MAX_CENTS + 1), 2)));
+        }
+        return woods;
+    }
+
+    /**
+     * Stores {@code rows} woods for each of {@code types} and republishes the price index.
+     */
+    public static void load(ConfigurableApplicationContext context, List<String> types, int rows) {
+        WoodTypeRepository woodTypeRepository = context.getBean(WoodTypeRepository.class);
+        WoodJdbcRepository woodJdbcRepository = context.getBean(WoodJdbcRepository.class);
+        for (int i = 0; i < types.size(); i++) {
+            String type = types.get(i);
+            woodTypeRepository.save(new WoodType(type));
+            woodJdbcRepository.mergeAll(type, woods(type, rows, i), 10_000);
+        }
+        context.getBean(WoodPriceIndex.class).rebuild();
+    }
+
+    public static List<String> types(int count) {
+        List<String> types = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            types.add("TYPE" + i);
+        }
+        return types;
+    }
+}
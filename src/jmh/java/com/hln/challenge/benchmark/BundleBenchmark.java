@@ -0,0 +1,70 @@
+package com.hln.challenge.benchmark;
+
+import com.hln.challenge.service.WoodService;
+import com.hln.challenge.service.bundle.BundleEnumerator;
+import com.hln.challenge.service.bundle.PriceColumn;
+import com.hln.challenge.service.dto.Bundle;
+import com.hln.challenge.service.index.WoodPriceIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link WoodService#createBundles} over {@code types} types of {@code rows} woods each. The cross product is far too
+ * large to list, so the min price is raised until about {@link #TARGET_BUNDLES} bundles remain, which keeps
+ * the cost of producing the answer comparable across parameters while the search space grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx6g")
+public class BundleBenchmark {
+
+    private static final long TARGET_BUNDLES = 10_000;
+
+    @Param({"1000", "100000", "1000000"})
+    private int rows;
+
+    @Param({"1", "2", "3"})
+    private int types;
+
+    private ConfigurableApplicationContext context;
+    private WoodService woodService;
+    private List<String> format;
+    private double minPrice;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkData.startContext();
+        woodService = context.getBean(WoodService.class);
+        format = BenchmarkData.types(types);
+        BenchmarkData.load(context, format, rows);
+        minPrice = minPriceFor(format);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Bundle> createBundles() {
+        return woodService.createBundles(format, minPrice, null);
+    }
+
+    // Price of the TARGET_BUNDLES-th most expensive bundle, read off the enumerator that createBundles itself uses
+    private double minPriceFor(List<String> types) {
+        WoodPriceIndex priceIndex = context.getBean(WoodPriceIndex.class);
+        List<PriceColumn> columns = types.stream().map(priceIndex::column).toList();
+        BundleEnumerator enumerator = new BundleEnumerator(columns, 0, Long.MAX_VALUE);
+        long cents = 0;
+        for (long i = 0; i < TARGET_BUNDLES && enumerator.hasNext(); i++) {
+            cents = enumerator.next().cents();
+        }
+        return cents / 100.0;
+    }
+}
@@ -0,0 +1,46 @@
+package com.hln.challenge.benchmark;
+
+import com.hln.challenge.persistence.models.Wood;
+import com.hln.challenge.service.WoodService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link WoodService#parseWoodDataFromFile} on an in-memory upload of {@code rows} records.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx6g")
+public class ParseBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+    private WoodService woodService;
+    private MockMultipartFile file;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkData.startContext();
+        woodService = context.getBean(WoodService.class);
+        file = new MockMultipartFile("file", "woods.tdf", "text/plain", BenchmarkData.tdf(rows, 42));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Wood> parseWoodDataFromFile() {
+        return woodService.parseWoodDataFromFile("OAK", file);
+    }
+}
@@ -0,0 +1,56 @@
+package com.hln.challenge.benchmark;
+
+import com.hln.challenge.persistence.models.Wood;
+import com.hln.challenge.service.WoodTransactionalService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link WoodTransactionalService#validateAndSave} into embedded H2, starting from an empty wood table each time.
+ * Only new and re-priced rows are written, through one batched {@code woodStore.merge} per type; with the table
+ * emptied first every row is new, so each invocation measures the diff plus the full batched write. The rows are
+ * still handed in as entities, which is what keeps the counts short of the parse benchmark's.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx6g")
+public class PersistenceBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+    private WoodTransactionalService woodTransactionalService;
+    private JdbcTemplate jdbcTemplate;
+    private List<Wood> woods;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkData.startContext();
+        woodTransactionalService = context.getBean(WoodTransactionalService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        woods = BenchmarkData.woods("OAK", rows, 42);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearWoods() {
+        jdbcTemplate.update("DELETE FROM wood");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Wood> validateAndSave() {
+        return woodTransactionalService.validateAndSave(woods);
+    }
+}
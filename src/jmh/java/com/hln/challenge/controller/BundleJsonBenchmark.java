@@ -0,0 +1,62 @@
+package com.hln.challenge.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hln.challenge.benchmark.BenchmarkData;
+import com.hln.challenge.persistence.models.Wood;
+import com.hln.challenge.service.dto.Bundle;
+import com.hln.challenge.service.dto.BundleWood;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing {@code rows} three-wood bundles: the list response through Spring's default ObjectMapper, and the
+ * streaming response through {@link BundleJsonWriter}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx6g")
+public class BundleJsonBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int rows;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private List<Bundle> bundles;
+
+    @Setup
+    public void setUp() {
+        List<List<Wood>> columns = List.of(
+                BenchmarkData.woods("OAK", rows, 1), BenchmarkData.woods("PINE", rows, 2), BenchmarkData.woods("MAPLE", rows, 3));
+        bundles = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            List<BundleWood> woods = new ArrayList<>(columns.size());
+            BigDecimal price = BigDecimal.ZERO;
+            for (List<Wood> column : columns) {
+                Wood wood = column.get(i);
+                woods.add(new BundleWood(wood.getWoodId().getType(), wood.getWoodId().getId(), wood.getPrice()));
+                price = price.add(wood.getPrice());
+            }
+            String id = woods.get(0).getId() + "-" + woods.get(1).getId() + "-" + woods.get(2).getId();
+            bundles.add(new Bundle(id, woods, price));
+        }
+    }
+
+    @Benchmark
+    public void objectMapper() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), bundles);
+    }
+
+    @Benchmark
+    public long bundleJsonWriter() throws IOException {
+        return BundleJsonWriter.write(bundles.stream(), OutputStream.nullOutputStream());
+    }
+}
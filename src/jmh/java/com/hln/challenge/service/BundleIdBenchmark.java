@@ -0,0 +1,46 @@
+package com.hln.challenge.service;
+
+import com.hln.challenge.benchmark.BenchmarkData;
+import com.hln.challenge.persistence.models.Wood;
+import com.hln.challenge.service.dto.Bundle;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link WoodService#createBundle}, and with it {@code createBundleId}, for one bundle of {@code types} woods.
+ * Neither touches the repositories, so the service is built without them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BundleIdBenchmark {
+
+    @Param({"1", "3", "5"})
+    private int types;
+
+    private WoodService woodService;
+    private List<Wood> woods;
+    private String format;
+
+    @Setup
+    public void setUp() {
+        woodService = new WoodService(null, null, null, null, null, null, null);
+        List<String> format = BenchmarkData.types(types);
+        woods = new ArrayList<>();
+        for (int i = 0; i < types; i++) {
+            woods.add(BenchmarkData.woods(format.get(i), 1, i).get(0));
+        }
+        this.format = String.join(",", format);
+    }
+
+    @Benchmark
+    public Bundle createBundle() {
+        return woodService.createBundle(woods, format);
+    }
+}
@@ -0,0 +1,292 @@
+package com.hln.challenge.loadtest;
+
+import com.hln.challenge.ChallengeApplication;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Boots the application in a JVM of its own on a free port and drives upload, bundle and mixed traffic at a fixed
+ * concurrency, reporting latency percentiles, throughput and the server's peak heap per scenario.
+ * <p>
+ * Settings are system properties: {@code load.concurrency} (8), {@code load.requests} per scenario (500),
+ * {@code load.rows} stored per type before the run (100000), {@code load.uploadRows} per upload request (2000),
+ * {@code load.seed} (42), {@code load.serverHeap} (the server's {@code -Xmx}, 2g), {@code load.baseline}
+ * (properties file to compare against), {@code load.threshold} (allowed regression, 0.25 = 25%), {@code load.result}
+ * (where to write this run) and {@code load.updateBaseline}. Without a baseline, or with one recorded under other
+ * settings, the run fails unless it is recording one. Peak heap is the highest {@code jvm.memory.used} of the
+ * server's heap the harness sees while polling {@code /actuator/metrics}, so it leaves out the harness and may miss
+ * short spikes.
+ */
+public class LoadTest {
+
+    private static final List<String> TYPES = List.of("OAK", "PINE", "MAPLE");
+    private static final List<String> FORMATS = List.of("OAK", "OAK,PINE", "PINE,OAK", "OAK,PINE,MAPLE");
+    // Share of requests in the mixed scenario that are uploads
+    private static final double MIXED_UPLOAD_SHARE = 0.2;
+    private static final long HEAP_POLL_MILLIS = 50;
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+    private static final Pattern METRIC_VALUE = Pattern.compile("\"value\"\\s*:\\s*([-0-9.Ee+]+)");
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    private final String baseUrl;
+    private final int concurrency;
+    private final int requests;
+    private final int uploadRows;
+    private final long seed;
+
+    LoadTest(String baseUrl, int concurrency, int requests, int uploadRows, long seed) {
+        this.baseUrl = baseUrl;
+        this.concurrency = concurrency;
+        this.requests = requests;
+        this.uploadRows = uploadRows;
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = Integer.getInteger("load.concurrency", 8);
+        int requests = Integer.getInteger("load.requests", 500);
+        int rows = Integer.getInteger("load.rows", 100_000);
+        int uploadRows = Integer.getInteger("load.uploadRows", 2000);
+        long seed = Long.getLong("load.seed", 42L);
+        double threshold = Double.parseDouble(System.getProperty("load.threshold", "0.25"));
+        Path baselineFile = Path.of(System.getProperty("load.baseline", "src/loadtest/loadtest-baseline.properties"));
+        Path resultFile = Path.of(System.getProperty("load.result", "target/loadtest-result.properties"));
+
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        String serverHeap = System.getProperty("load.serverHeap", "2g");
+        Process server = startServer(port, serverHeap);
+        List<ScenarioResult> results = new ArrayList<>();
+        try {
+            LoadTest loadTest = new LoadTest("http://localhost:" + port, concurrency, requests, uploadRows, seed);
+            loadTest.awaitStartup(server);
+            loadTest.seedTypes(rows);
+            results.add(loadTest.run("upload", random -> loadTest.upload(random)));
+            results.add(loadTest.run("bundle", random -> loadTest.bundlePage(random)));
+            results.add(loadTest.run("mixed", random -> random.nextDouble() < MIXED_UPLOAD_SHARE
+                    ? loadTest.upload(random)
+                    : loadTest.bundlePage(random)));
+        } finally {
+            server.destroy();
+            if (!server.waitFor(30, TimeUnit.SECONDS)) {
+                server.destroyForcibly();
+            }
+        }
+
+        System.out.println();
+        System.out.println(ScenarioResult.HEADER);
+        results.forEach(System.out::println);
+        // Results are only comparable under the same workload and server heap
+        String settings = "concurrency=" + concurrency + " requests=" + requests + " rows=" + rows
+                + " uploadRows=" + uploadRows + " seed=" + seed + " serverHeap=" + serverHeap;
+        Properties current = new Properties();
+        current.setProperty("settings", settings);
+        results.forEach(result -> result.store(current));
+        Files.createDirectories(resultFile.toAbsolutePath().getParent());
+        try (OutputStream out = Files.newOutputStream(resultFile)) {
+            current.store(out, "Load test result");
+        }
+
+        if (Boolean.getBoolean("load.updateBaseline")) {
+            Files.copy(resultFile, baselineFile, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("Baseline updated: " + baselineFile);
+            return;
+        }
+        if (!Files.exists(baselineFile)) {
+            System.out.println("No baseline at " + baselineFile + "; rerun with -Dload.updateBaseline=true to record one");
+            System.exit(1);
+        }
+        Properties baseline = new Properties();
+        try (InputStream in = Files.newInputStream(baselineFile)) {
+            baseline.load(in);
+        }
+        if (!settings.equals(baseline.getProperty("settings"))) {
+            System.out.println("Baseline " + baselineFile + " was recorded with " + baseline.getProperty("settings")
+                    + ", this run used " + settings + "; rerun with those settings or -Dload.updateBaseline=true");
+            System.exit(1);
+        }
+        List<String> regressions = new ArrayList<>();
+        results.forEach(result -> regressions.addAll(result.regressionsAgainst(baseline, threshold)));
+        if (!regressions.isEmpty()) {
+            regressions.forEach(regression -> System.out.println("REGRESSION " + regression));
+            System.exit(1);
+        }
+        System.out.println("No regression beyond " + Math.round(threshold * 100) + "% of " + baselineFile);
+    }
+
+    // The server runs from the harness's own classpath, which holds the application and its dependencies; devtools
+    // is on it too, so its restart class loader is turned off
+    private static Process startServer(int port, String heap) throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Path log = Path.of("target", "loadtest-server.log");
+        Files.createDirectories(log.toAbsolutePath().getParent());
+        return new ProcessBuilder(java, "-Xmx" + heap, "-Dspring.devtools.restart.enabled=false",
+                "-cp", System.getProperty("java.class.path"),
+                ChallengeApplication.class.getName(),
+                "--server.port=" + port,
+                // Writers of a type queue on its row lock; H2's default timeout of a second or two would fail them
+                "--spring.datasource.url=jdbc:h2:mem:loadtest-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=60000",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--management.endpoint.health.probes.enabled=true")
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+    }
+
+    // Readiness rather than health: the server listens before the startup runners have stored the example types
+    private void awaitStartup(Process server) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        HttpRequest health = HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/health/readiness")).GET().build();
+        while (System.nanoTime() < deadline) {
+            if (!server.isAlive()) {
+                throw new IllegalStateException("Server exited with " + server.exitValue() + "; see target/loadtest-server.log");
+            }
+            try {
+                if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (ConnectException e) {
+                // Not listening yet
+            }
+            Thread.sleep(200);
+        }
+        throw new IllegalStateException("Server did not start within " + STARTUP_TIMEOUT);
+    }
+
+    private long serverHeapUsed() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(
+                        URI.create(baseUrl + "/actuator/metrics/jvm.memory.used?tag=area:heap"))
+                .GET()
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        Matcher value = METRIC_VALUE.matcher(response.body());
+        if (response.statusCode() != 200 || !value.find()) {
+            throw new IllegalStateException("Unexpected heap metric, HTTP " + response.statusCode() + ": " + response.body());
+        }
+        return (long) Double.parseDouble(value.group(1));
+    }
+
+    // Stores rows for every type so the bundle scenarios have data to combine
+    private void seedTypes(int rows) throws IOException, InterruptedException {
+        for (int i = 0; i < TYPES.size(); i++) {
+            byte[] file = new TdfGenerator(seed + i).maxId(Math.max(rows, 1_000_000)).generate(rows);
+            int status = post(TYPES.get(i), file);
+            if (status != 200) {
+                throw new IllegalStateException("Seeding " + TYPES.get(i) + " failed with HTTP " + status);
+            }
+        }
+    }
+
+    private ScenarioResult run(String name, Request request) throws InterruptedException {
+        long[] latencies = new long[requests];
+        AtomicInteger failures = new AtomicInteger();
+        AtomicLong peakHeap = new AtomicLong();
+
+        long start = System.nanoTime();
+        try (ScheduledExecutorService heapPoller = Executors.newSingleThreadScheduledExecutor();
+             ExecutorService executor = Executors.newFixedThreadPool(concurrency)) {
+            heapPoller.scheduleWithFixedDelay(() -> {
+                try {
+                    peakHeap.accumulateAndGet(serverHeapUsed(), Math::max);
+                } catch (IOException | InterruptedException | RuntimeException e) {
+                    // A missed sample only makes the peak less precise
+                }
+            }, 0, HEAP_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            for (int i = 0; i < requests; i++) {
+                int index = i;
+                executor.submit(() -> {
+                    // One generator per request keeps the traffic identical for a given seed, whatever the scheduling
+                    SplittableRandom random = new SplittableRandom(seed * 31 + index);
+                    long requestStart = System.nanoTime();
+                    try {
+                        if (request.send(random) >= 400) {
+                            failures.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    }
+                    latencies[index] = System.nanoTime() - requestStart;
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            heapPoller.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        return new ScenarioResult(name, requests, failures.get(), percentile(latencies, 50), percentile(latencies, 95),
+                percentile(latencies, 99), requests / (elapsed / 1e9), peakHeap.get());
+    }
+
+    private int upload(SplittableRandom random) throws IOException, InterruptedException {
+        String type = TYPES.get(random.nextInt(TYPES.size()));
+        byte[] file = new TdfGenerator(random.nextLong()).maxId(1_000_000).generate(uploadRows);
+        return post(type, file);
+    }
+
+    private int bundlePage(SplittableRandom random) throws IOException, InterruptedException {
+        String format = FORMATS.get(random.nextInt(FORMATS.size()));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/bundle?format=" + format + "&limit=100"))
+                .GET()
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private int post(String type, byte[] file) throws IOException, InterruptedException {
+        String boundary = "load-" + UUID.randomUUID();
+        ByteArrayOutputStream body = new ByteArrayOutputStream(file.length + 256);
+        body.writeBytes(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + type + ".txt\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        body.writeBytes(file);
+        body.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/upload/" + type))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static double percentile(long[] sortedNanos, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, index)] / 1e6;
+    }
+
+    @FunctionalInterface
+    private interface Request {
+        // Returns the HTTP status
+        int send(SplittableRandom random) throws Exception;
+    }
+}
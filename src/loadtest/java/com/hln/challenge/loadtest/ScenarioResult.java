@@ -0,0 +1,61 @@
+package com.hln.challenge.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Measurements of one load test scenario; latencies in milliseconds, throughput in requests per second.
+ */
+record ScenarioResult(String name, int requests, int failures, double p50Millis, double p95Millis, double p99Millis,
+                      double throughput, long peakHeapBytes) {
+
+    static final String HEADER = String.format("%-8s %9s %8s %10s %10s %10s %12s %14s",
+            "scenario", "requests", "failures", "p50 ms", "p95 ms", "p99 ms", "req/s", "peak heap MB");
+
+    void store(Properties properties) {
+        properties.setProperty(name + ".failures", Integer.toString(failures));
+        properties.setProperty(name + ".p50Millis", format(p50Millis));
+        properties.setProperty(name + ".p95Millis", format(p95Millis));
+        properties.setProperty(name + ".p99Millis", format(p99Millis));
+        properties.setProperty(name + ".throughput", format(throughput));
+        properties.setProperty(name + ".peakHeapBytes", Long.toString(peakHeapBytes));
+    }
+
+    /**
+     * Describes every metric that is worse than the baseline by more than {@code threshold}; metrics missing from
+     * the baseline are skipped, and any failed request is a regression.
+     */
+    List<String> regressionsAgainst(Properties baseline, double threshold) {
+        List<String> regressions = new ArrayList<>();
+        if (failures > 0) {
+            regressions.add(name + ": " + failures + " of " + requests + " requests failed");
+        }
+        checkHigher(regressions, baseline, "p50Millis", p50Millis, threshold);
+        checkHigher(regressions, baseline, "p95Millis", p95Millis, threshold);
+        checkHigher(regressions, baseline, "p99Millis", p99Millis, threshold);
+        checkHigher(regressions, baseline, "peakHeapBytes", peakHeapBytes, threshold);
+        String expected = baseline.getProperty(name + ".throughput");
+        if (expected != null && throughput < Double.parseDouble(expected) * (1 - threshold)) {
+            regressions.add(name + ".throughput " + format(throughput) + " < baseline " + expected);
+        }
+        return regressions;
+    }
+
+    private void checkHigher(List<String> regressions, Properties baseline, String metric, double value, double threshold) {
+        String expected = baseline.getProperty(name + "." + metric);
+        if (expected != null && value > Double.parseDouble(expected) * (1 + threshold)) {
+            regressions.add(name + "." + metric + " " + format(value) + " > baseline " + expected);
+        }
+    }
+
+    private static String format(double value) {
+        return String.format("%.2f", value);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-8s %9d %8d %10.2f %10.2f %10.2f %12.1f %14.1f",
+                name, requests, failures, p50Millis, p95Millis, p99Millis, throughput, peakHeapBytes / 1048576.0);
+    }
+}
@@ -0,0 +1,145 @@
+package com.hln.challenge.loadtest;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic generator of upload files in the data/input format: an optional {@code id price} header, tab
+ * separated columns with occasional extra tabs, {@code $} prices with zero to two decimals, and identical duplicate
+ * rows. The same seed and settings always produce the same bytes.
+ * <p>
+ * From the command line: {@code TdfGenerator <rows> <seed> <file> [duplicateRate] [noHeader]}.
+ */
+public class TdfGenerator {
+
+    private final long seed;
+    private boolean header = true;
+    private double duplicateRate = 0.01;
+    private double extraTabRate = 0.1;
+    private long maxId = 2_147_483_647L;
+    private int maxCents = 99_999;
+
+    public TdfGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public TdfGenerator header(boolean header) {
+        this.header = header;
+        return this;
+    }
+
+    /**
+     * Share of rows that repeat an earlier row exactly; conflicting duplicates are never generated.
+     */
+    public TdfGenerator duplicateRate(double duplicateRate) {
+        this.duplicateRate = duplicateRate;
+        return this;
+    }
+
+    public TdfGenerator extraTabRate(double extraTabRate) {
+        this.extraTabRate = extraTabRate;
+        return this;
+    }
+
+    /**
+     * Largest id to draw; must be at least the number of rows, or ids would wrap around into conflicts.
+     */
+    public TdfGenerator maxId(long maxId) {
+        this.maxId = maxId;
+        return this;
+    }
+
+    public TdfGenerator maxPrice(double maxPrice) {
+        this.maxCents = (int) Math.round(maxPrice * 100);
+        return this;
+    }
+
+    public byte[] generate(int rows) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(rows * 20);
+        write(out, rows);
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes {@code rows} data rows, duplicates included, after the optional header.
+     */
+    public void write(OutputStream out, int rows) {
+        SplittableRandom random = new SplittableRandom(seed);
+        // Ids step through [1, maxId] by a stride coprime to maxId, so only deliberate duplicates repeat an id
+        long stride;
+        do {
+            stride = random.nextLong(1, Math.max(2, maxId));
+        } while (gcd(stride, maxId) != 1);
+        long offset = random.nextLong(maxId);
+        StringBuilder line = new StringBuilder(32);
+        long lastId = 0;
+        int lastCents = 0;
+        try {
+            if (header) {
+                out.write((random.nextBoolean() ? "id\tprice\n" : "id\t\tprice\t\n").getBytes(StandardCharsets.US_ASCII));
+            }
+            for (int i = 0; i < rows; i++) {
+                long id;
+                int cents;
+                if (i > 0 && random.nextDouble() < duplicateRate) {
+                    id = lastId;
+                    cents = lastCents;
+                } else {
+                    id = 1 + Math.floorMod(offset + i * stride, maxId);
+                    cents = random.nextInt(1, maxCents + 1);
+                }
+                line.setLength(0);
+                boolean extraTabs = random.nextDouble() < extraTabRate;
+                line.append(id).append(extraTabs ? "\t\t$" : "\t$").append(cents / 100);
+                appendDecimals(line, cents % 100, random.nextInt(3));
+                line.append(extraTabs ? "\t\n" : "\n");
+                out.write(line.toString().getBytes(StandardCharsets.US_ASCII));
+                lastId = id;
+                lastCents = cents;
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Writes 0, 1 or 2 decimals, as many as the value allows without losing precision
+    private static void appendDecimals(StringBuilder line, int fraction, int preferred) {
+        int digits = fraction % 10 != 0 ? 2 : fraction != 0 ? Math.max(1, preferred) : preferred;
+        if (digits == 0) {
+            return;
+        }
+        line.append('.').append(fraction / 10);
+        if (digits == 2) {
+            line.append(fraction % 10);
+        }
+    }
+
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("usage: TdfGenerator <rows> <seed> <file> [duplicateRate] [noHeader]");
+            System.exit(2);
+        }
+        TdfGenerator generator = new TdfGenerator(Long.parseLong(args[1]));
+        if (args.length > 3) {
+            generator.duplicateRate(Double.parseDouble(args[3]));
+        }
+        if (args.length > 4 && args[4].equals("noHeader")) {
+            generator.header(false);
+        }
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Path.of(args[2])), 1 << 16)) {
+            generator.write(out, Integer.parseInt(args[0]));
+        }
+    }
+}
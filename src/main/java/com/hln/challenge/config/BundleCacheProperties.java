@@ -0,0 +1,13 @@
+package com.hln.challenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "wood.bundle.cache")
+public class BundleCacheProperties {
+    // Bundle lists kept at most; 0 disables the cache
+    private int maxEntries = 1000;
+    // Bundles kept at most over all entries; a single larger result is not cached
+    private long maxBundles = 1_000_000;
+}
@@ -0,0 +1,23 @@
+package com.hln.challenge.config;
+
+import com.hln.challenge.controller.BundleResponseMetricsFilter;
+import com.hln.challenge.service.metrics.WoodMetrics;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers {@link BundleResponseMetricsFilter} with the application only; as a plain component it would also be
+ * picked up by web slice tests, which have no {@link WoodMetrics} to give it.
+ */
+@Configuration(proxyBeanMethods = false)
+public class MetricsFilterConfig {
+
+    @Bean
+    public FilterRegistrationBean<BundleResponseMetricsFilter> bundleResponseMetricsFilter(WoodMetrics metrics) {
+        FilterRegistrationBean<BundleResponseMetricsFilter> registration =
+                new FilterRegistrationBean<>(new BundleResponseMetricsFilter(metrics));
+        registration.addUrlPatterns("/api/bundle", "/api/bundle/*");
+        return registration;
+    }
+}
@@ -0,0 +1,15 @@
+package com.hln.challenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "wood.store")
+public class StoreProperties {
+    // Where woods are kept: jpa (the database) or log (memory-mapped files that survive a restart)
+    private String type = "jpa";
+    // Directory of the log store's files
+    private String path = "wood-store";
+    // Rows the log store's write log holds before it is compacted into the per-type segments
+    private int logCapacity = 1_000_000;
+}
@@ -0,0 +1,25 @@
+package com.hln.challenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "wood.upload")
+public class UploadProperties {
+    // Rows sent to the database per JDBC batch when persisting an upload
+    private int batchSize = 1000;
+    // Rows parsed and staged at a time by streaming uploads; bounds the heap an upload can use
+    private int chunkSize = 10000;
+    // Uploads at least this many bytes are spooled to disk and parsed on all cores
+    private long parallelParseThreshold = 64L * 1024 * 1024;
+    // Async uploads processed at a time
+    private int jobWorkers = 2;
+    // Async uploads waiting for a worker; beyond this new ones are turned away with 429
+    private int jobQueueCapacity = 8;
+    // Finished async uploads whose status is still kept for polling
+    private int retainedJobs = 1000;
+    // Files all the zips of one bulk upload may hold; beyond this the upload is rejected
+    private int maxZipEntries = 1000;
+    // Bytes all the zips of one bulk upload may expand to; beyond this the upload is rejected
+    private long maxZipBytes = 8L * 1024 * 1024 * 1024;
+}
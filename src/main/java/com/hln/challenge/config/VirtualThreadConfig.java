@@ -0,0 +1,57 @@
+package com.hln.challenge.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs every request, and async work such as streamed responses, on its own virtual thread
+ * ({@code wood.web.virtual-threads=true}), so requests blocked on JDBC no longer hold one of Tomcat's platform
+ * threads. Since virtual threads are not bounded, connections are handed out through a {@link PermitDataSource}
+ * sized to the pool.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "wood.web", name = "virtual-threads", havingValue = "true")
+public class VirtualThreadConfig {
+
+    // HikariConfig's own default, applied when the pool starts
+    private static final int HIKARI_DEFAULT_POOL_SIZE = 10;
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandler() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    // Static, so the data source is wrapped however early it is created
+    @Bean
+    public static BeanPostProcessor connectionPermits() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource pool) {
+                    return new PermitDataSource(pool, poolSize(pool), Duration.ofMillis(pool.getConnectionTimeout()));
+                }
+                return bean;
+            }
+        };
+    }
+
+    // spring.datasource.hikari.* is bound by now, but an unset size stays -1 until the pool starts and applies its default
+    private static int poolSize(HikariDataSource pool) {
+        return pool.getMaximumPoolSize() > 0 ? pool.getMaximumPoolSize() : HIKARI_DEFAULT_POOL_SIZE;
+    }
+}
@@ -1,29 +1,41 @@
 package com.hln.challenge.config;
 import com.hln.challenge.persistence.models.WoodType;
 import com.hln.challenge.persistence.repository.WoodTypeRepository;
+import com.hln.challenge.persistence.store.WoodStore;
+import com.hln.challenge.service.index.WoodTypeRegistry;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 @Component
 public class WoodTypeDataLoader implements CommandLineRunner {
     private final WoodTypeRepository woodTypeRepository;
+    private final WoodTypeRegistry typeRegistry;
+    private final WoodStore woodStore;
 
-    public WoodTypeDataLoader(WoodTypeRepository woodTypeRepository) {
+    public WoodTypeDataLoader(WoodTypeRepository woodTypeRepository, WoodTypeRegistry typeRegistry,
+                              WoodStore woodStore) {
         this.woodTypeRepository = woodTypeRepository;
+        this.typeRegistry = typeRegistry;
+        this.woodStore = woodStore;
     }
 
     @Override
     public void run(String... args) throws Exception {
         // Example wood types
-        List<String> types = Arrays.asList("OAK", "PINE", "MAPLE");
+        List<String> types = new ArrayList<>(Arrays.asList("OAK", "PINE", "MAPLE"));
+        // A file-backed store outlives the in-memory database, so its types are registered again
+        types.addAll(woodStore.findAllTypes());
         for (String type : types) {
             if (!woodTypeRepository.existsById(type)) {
                 woodTypeRepository.save(new WoodType(type));
             }
         }
+        // Preload every stored type, so validating types needs no query
+        typeRegistry.reload();
     }
 }
 
@@ -0,0 +1,68 @@
+package com.hln.challenge.controller;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.hln.challenge.service.dto.Bundle;
+import com.hln.challenge.service.dto.BundleWood;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes bundles in the README's {@code { "bundles": [...], "total": n }} shape one at a time,
+ * so nothing but the bundle being written is held on the heap.
+ */
+final class BundleJsonWriter {
+
+    // The servlet container owns the response stream, so the generator must not close it
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build();
+    // Bundles written between explicit flushes; the first bundle is always flushed right away
+    private static final int FLUSH_INTERVAL = 1000;
+
+    private BundleJsonWriter() {
+    }
+
+    /**
+     * Drains {@code bundles} into {@code out} and returns how many were written.
+     */
+    static long write(Stream<Bundle> bundles, OutputStream out) throws IOException {
+        long total = 0;
+        try (bundles; JsonGenerator generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("bundles");
+            Iterator<Bundle> iterator = bundles.iterator();
+            while (iterator.hasNext()) {
+                writeBundle(generator, iterator.next());
+                if (total++ % FLUSH_INTERVAL == 0) {
+                    generator.flush();
+                }
+            }
+            generator.writeEndArray();
+            generator.writeNumberField("total", total);
+            generator.writeEndObject();
+        }
+        return total;
+    }
+
+    private static void writeBundle(JsonGenerator generator, Bundle bundle) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("id", bundle.getId());
+        generator.writeArrayFieldStart("bundle");
+        for (BundleWood wood : bundle.getBundle()) {
+            generator.writeStartObject();
+            generator.writeStringField("type", wood.getType());
+            generator.writeNumberField("id", wood.getId());
+            generator.writeNumberField("price", wood.getPrice());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeNumberField("price", bundle.getPrice());
+        generator.writeEndObject();
+    }
+}
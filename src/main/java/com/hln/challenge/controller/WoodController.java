@@ -1,35 +1,199 @@
 package com.hln.challenge.controller;
 
-import com.hln.challenge.persistence.models.Wood;
+import com.hln.challenge.service.BulkUploadService;
+import com.hln.challenge.service.UploadJobService;
 import com.hln.challenge.service.WoodService;
+import com.hln.challenge.service.dto.BulkUploadResult;
 import com.hln.challenge.service.dto.Bundle;
+import com.hln.challenge.service.dto.BundleCount;
+import com.hln.challenge.service.dto.BundlePage;
+import com.hln.challenge.service.dto.UploadJobStatus;
+import com.hln.challenge.service.dto.UploadResult;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api")
 public class WoodController {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     private final WoodService woodService;
+    private final BulkUploadService bulkUploadService;
+    private final UploadJobService uploadJobService;
 
-    public WoodController(WoodService woodService) {
+    public WoodController(WoodService woodService, BulkUploadService bulkUploadService,
+                          UploadJobService uploadJobService) {
         this.woodService = woodService;
+        this.bulkUploadService = bulkUploadService;
+        this.uploadJobService = uploadJobService;
     }
 
     @PostMapping("/upload/{type}")
     public ResponseEntity<?> uploadFile(@PathVariable String type, @RequestParam("file") MultipartFile file) {
-        List<Wood> woods = woodService.processFileUpload(type, file);
-        return ResponseEntity.ok(woods); // Or handle the response as needed
+        UploadResult result = woodService.processFileUpload(type, file);
+        // The body keeps the README shape; the write summary travels in headers
+        return uploadResponse(result)
+                .body(result.getWoods());
+    }
+
+    // For very large files: ingested in bounded chunks, and the stored woods are read back row by row
+    @PostMapping(value = "/upload/{type}", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamUploadFile(@PathVariable String type,
+                                                                  @RequestParam("file") MultipartFile file) {
+        UploadResult result = woodService.processStreamingUpload(type, file);
+        StreamingResponseBody body = out -> WoodJsonWriter.write(
+                callback -> woodService.forEachCurrentWood(type, callback), out);
+        return uploadResponse(result)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    // Queues the upload and answers at once; poll the Location for progress, 429 when the queue is full
+    @PostMapping(value = "/upload/{type}", params = "async=true")
+    public ResponseEntity<UploadJobStatus> uploadFileAsync(@PathVariable String type,
+                                                           @RequestParam("file") MultipartFile file) {
+        UploadJobStatus job = uploadJobService.submit(type, file);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/upload/jobs/" + job.getId()))
+                .body(job);
+    }
+
+    // Pollers send back the ETag and get 304 until the job has moved on
+    @GetMapping("/upload/jobs/{id}")
+    public ResponseEntity<UploadJobStatus> getUploadJob(@PathVariable String id,
+                                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        UploadJobStatus job = uploadJobService.getStatus(id);
+        String eTag = jobETag(job);
+        if (isNotModified(ifNoneMatch, eTag)) {
+            return notModified(eTag);
+        }
+        return ResponseEntity.ok().eTag(eTag).body(job);
+    }
+
+    // One part per type, named after it, or a zip of per-type files; every type succeeds or fails on its own
+    @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<BulkUploadResult> uploadFiles(@RequestParam MultiValueMap<String, MultipartFile> files) {
+        return ResponseEntity.ok(bulkUploadService.processBulkUpload(files));
     }
 
     @GetMapping("/bundle")
     public ResponseEntity<?> getBundles(@RequestParam("format") String format,
                                         @RequestParam(required = false) Double minPrice,
-                                        @RequestParam(required = false) Double maxPrice) {
-        List<Bundle> bundles = woodService.getBundles(format, minPrice, maxPrice);
-        return ResponseEntity.ok(bundles);
+                                        @RequestParam(required = false) Double maxPrice,
+                                        @RequestParam(required = false) Integer limit,
+                                        @RequestParam(required = false) String cursor,
+                                        @RequestParam(defaultValue = "false") boolean compactIds,
+                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        boolean paged = limit != null || cursor != null;
+        int pageSize = Optional.ofNullable(limit).orElse(DEFAULT_PAGE_SIZE);
+        String eTag = woodService.bundleETag(format, minPrice, maxPrice,
+                paged ? "page:" + pageSize + ":" + cursor + ":" + compactIds : "list:" + compactIds);
+        if (isNotModified(ifNoneMatch, eTag)) {
+            return notModified(eTag);
+        }
+        if (paged) {
+            BundlePage page = woodService.getBundlePage(format, minPrice, maxPrice, pageSize, cursor, compactIds);
+            return ResponseEntity.ok().eTag(eTag).body(page);
+        }
+        List<Bundle> bundles = woodService.getBundles(format, minPrice, maxPrice, compactIds);
+        return ResponseEntity.ok().eTag(eTag).body(bundles);
+    }
+
+    @GetMapping("/bundle/count")
+    public ResponseEntity<BundleCount> countBundles(@RequestParam("format") String format,
+                                                    @RequestParam(required = false) Double minPrice,
+                                                    @RequestParam(required = false) Double maxPrice,
+                                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String eTag = woodService.bundleETag(format, minPrice, maxPrice, "count");
+        if (isNotModified(ifNoneMatch, eTag)) {
+            return notModified(eTag);
+        }
+        return ResponseEntity.ok().eTag(eTag).body(woodService.countBundles(format, minPrice, maxPrice));
+    }
+
+    // The k bundles priced closest to target, or the k most expensive within the bounds when there is no target
+    @GetMapping("/bundle/search")
+    public ResponseEntity<List<Bundle>> searchBundles(@RequestParam("format") String format,
+                                                      @RequestParam("k") int k,
+                                                      @RequestParam(required = false) Double target,
+                                                      @RequestParam(required = false) Double minPrice,
+                                                      @RequestParam(required = false) Double maxPrice,
+                                                      @RequestParam(defaultValue = "false") boolean compactIds,
+                                                      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String eTag = woodService.bundleETag(format, minPrice, maxPrice, "search:" + k + ":" + target + ":" + compactIds);
+        if (isNotModified(ifNoneMatch, eTag)) {
+            return notModified(eTag);
+        }
+        return ResponseEntity.ok().eTag(eTag).body(woodService.searchBundles(format, target, minPrice, maxPrice, k, compactIds));
+    }
+
+    // Decodes an id listed with compactIds=true; 404 once any of its types has been re-priced
+    @GetMapping("/bundle/{id}")
+    public ResponseEntity<Bundle> getBundle(@PathVariable String id) {
+        return ResponseEntity.ok(woodService.getBundle(id));
+    }
+
+    // Writes each bundle as soon as it is generated; validation errors still surface as 400 before the body starts
+    @GetMapping(value = "/bundle", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamBundles(@RequestParam("format") String format,
+                                                               @RequestParam(required = false) Double minPrice,
+                                                               @RequestParam(required = false) Double maxPrice,
+                                                               @RequestParam(defaultValue = "false") boolean compactIds,
+                                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String eTag = woodService.bundleETag(format, minPrice, maxPrice, "stream:" + compactIds);
+        if (isNotModified(ifNoneMatch, eTag)) {
+            return notModified(eTag);
+        }
+        Stream<Bundle> bundles = woodService.getBundleStream(format, minPrice, maxPrice, compactIds);
+        StreamingResponseBody body = out -> BundleJsonWriter.write(bundles, out);
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    // Weak comparison as If-None-Match requires; gzip on the way out may also have weakened the tag the client holds
+    static boolean isNotModified(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The state and the rows parsed are all a job's version needs: its outcome is set together with its final state
+    static String jobETag(UploadJobStatus job) {
+        return '"' + job.getState().name() + '-' + job.getRowsParsed() + '"';
+    }
+
+    private static <T> ResponseEntity<T> notModified(String eTag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+    }
+
+    private static ResponseEntity.BodyBuilder uploadResponse(UploadResult result) {
+        return ResponseEntity.ok()
+                .header("X-Rows-Inserted", String.valueOf(result.getInserted()))
+                .header("X-Rows-Updated", String.valueOf(result.getUpdated()))
+                .header("X-Rows-Unchanged", String.valueOf(result.getUnchanged()));
     }
 }
\ No newline at end of file
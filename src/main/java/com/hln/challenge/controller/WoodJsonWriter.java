@@ -0,0 +1,55 @@
+package com.hln.challenge.controller;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.hln.challenge.persistence.store.PriceRowCallback;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.function.Consumer;
+
+/**
+ * Writes a type's woods in the upload response's {@code [ { "id": n, "price": p } ]} shape as the rows are read,
+ * so the response never holds more than one row.
+ */
+final class WoodJsonWriter {
+
+    // The servlet container owns the response stream, so the generator must not close it
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build();
+
+    private WoodJsonWriter() {
+    }
+
+    /**
+     * Feeds every row produced by {@code source} into {@code out} and returns how many were written.
+     */
+    static long write(Consumer<PriceRowCallback> source, OutputStream out) throws IOException {
+        long[] total = {0};
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartArray();
+            try {
+                source.accept((id, cents) -> {
+                    try {
+                        generator.writeStartObject();
+                        generator.writeNumberField("id", id);
+                        generator.writeNumberField("price", BigDecimal.valueOf(cents, 2));
+                        generator.writeEndObject();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    total[0]++;
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            generator.writeEndArray();
+        }
+        return total[0];
+    }
+}
@@ -0,0 +1,8 @@
+package com.hln.challenge.exception;
+
+public class NotFoundException extends RuntimeException {
+
+    public NotFoundException(String message) {
+        super(message);
+    }
+}
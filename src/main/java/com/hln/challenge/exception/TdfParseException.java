@@ -0,0 +1,28 @@
+package com.hln.challenge.exception;
+
+import lombok.Getter;
+
+/**
+ * Raised for the first malformed record of an uploaded TDF file; line and column are 1-based.
+ */
+@Getter
+public class TdfParseException extends BadRequestException {
+
+    private final long line;
+    private final int column;
+    private final String reason;
+
+    public TdfParseException(long line, int column, String reason) {
+        super("Error parsing file at line " + line + ", column " + column + ": " + reason);
+        this.line = line;
+        this.column = column;
+        this.reason = reason;
+    }
+
+    /**
+     * The same error for a slice of the file that starts {@code lines} lines further down.
+     */
+    public TdfParseException shiftedBy(long lines) {
+        return new TdfParseException(line + lines, column, reason);
+    }
+}
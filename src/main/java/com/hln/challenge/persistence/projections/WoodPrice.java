@@ -0,0 +1,9 @@
+package com.hln.challenge.persistence.projections;
+
+import java.math.BigDecimal;
+
+/**
+ * Read-only (id, price) view of a stored wood; serializes in the README's upload response shape.
+ */
+public record WoodPrice(long id, BigDecimal price) {
+}
@@ -0,0 +1,161 @@
+package com.hln.challenge.persistence.repository;
+
+import com.hln.challenge.persistence.models.Wood;
+import com.hln.challenge.persistence.store.PriceRowCallback;
+import com.hln.challenge.persistence.store.PriceSnapshot;
+import com.hln.challenge.persistence.store.TypedPriceRowCallback;
+import com.hln.challenge.persistence.store.UploadDigest;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Plain JDBC access to the wood table for bulk work that JPA would do one entity at a time.
+ */
+@Repository
+public class WoodJdbcRepository {
+
+    private static final String MERGE_WOOD = "MERGE INTO wood (type, id, price) KEY (type, id) VALUES (?, ?, ?)";
+    // Prices are read as whole cents, which NUMERIC(10,2) holds exactly, so no row goes through a BigDecimal
+    private static final String SELECT_PRICES_BY_TYPE = "SELECT id, CAST(price * 100 AS BIGINT) FROM wood WHERE type = ? ORDER BY id";
+    private static final String SELECT_WOODS_BY_TYPE_SORTED =
+            "SELECT id, CAST(price * 100 AS BIGINT) FROM wood WHERE type = ? ORDER BY price DESC, id ASC";
+    // Completed with one placeholder per type; still answered from the (type, price DESC, id) index
+    private static final String SELECT_WOODS_BY_TYPES_SORTED =
+            "SELECT type, id, CAST(price * 100 AS BIGINT) FROM wood WHERE type IN (%s) ORDER BY type, price DESC, id ASC";
+
+    private static final String SELECT_UPLOAD_DIGEST = "SELECT digest, row_count FROM wood_upload_digest WHERE type = ?";
+    private static final String MERGE_UPLOAD_DIGEST =
+            "MERGE INTO wood_upload_digest (type, digest, row_count) KEY (type) VALUES (?, ?, ?)";
+    private static final String DELETE_UPLOAD_DIGEST = "DELETE FROM wood_upload_digest WHERE type = ?";
+
+    // Rows the driver pulls per round trip when streaming a whole type
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public WoodJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Reads every stored (id, price) of a type in one query, ordered by id for binary search.
+     */
+    public PriceSnapshot findPricesByType(String type) {
+        PriceSnapshot.Builder builder = new PriceSnapshot.Builder();
+        jdbcTemplate.query(SELECT_PRICES_BY_TYPE, rs -> {
+            builder.add(rs.getLong(1), rs.getLong(2));
+        }, type);
+        return builder.build();
+    }
+
+    /**
+     * Inserts or overwrites the given woods with batched MERGE statements; returns the number of rows written.
+     */
+    public int mergeAll(String type, List<Wood> woods, int batchSize) {
+        int[][] counts = jdbcTemplate.batchUpdate(MERGE_WOOD, woods, batchSize, (ps, wood) -> {
+            ps.setString(1, type);
+            ps.setLong(2, wood.getWoodId().getId());
+            ps.setBigDecimal(3, wood.getPrice());
+        });
+        return Arrays.stream(counts).mapToInt(batch -> batch.length).sum();
+    }
+
+    /**
+     * Inserts or overwrites rows {@code from} to {@code to} (exclusive) of the arrays with one batched MERGE,
+     * without building an entity or a list.
+     */
+    public void mergeRows(String type, long[] ids, long[] cents, int from, int to) {
+        jdbcTemplate.batchUpdate(MERGE_WOOD, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setString(1, type);
+                ps.setLong(2, ids[from + i]);
+                ps.setBigDecimal(3, BigDecimal.valueOf(cents[from + i], 2));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return to - from;
+            }
+        });
+    }
+
+    /**
+     * Streams every stored wood of a type ordered by id, without building a list.
+     */
+    public void forEachById(String type, PriceRowCallback callback) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_PRICES_BY_TYPE);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            statement.setString(1, type);
+            return statement;
+        }, rs -> {
+            callback.row(rs.getLong(1), rs.getLong(2));
+        });
+    }
+
+    /**
+     * Streams every stored wood of a type, sorted by price descending then id ascending, without building a list.
+     */
+    public void forEachByTypeSorted(String type, PriceRowCallback callback) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_WOODS_BY_TYPE_SORTED);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            statement.setString(1, type);
+            return statement;
+        }, rs -> {
+            callback.row(rs.getLong(1), rs.getLong(2));
+        });
+    }
+
+    /**
+     * Streams every stored wood of the given types in one query, grouped by type and then sorted like
+     * {@link #forEachByTypeSorted}.
+     */
+    public void forEachByTypesSorted(Collection<String> types, TypedPriceRowCallback callback) {
+        List<String> distinct = types.stream().distinct().toList();
+        if (distinct.isEmpty()) {
+            return;
+        }
+        String sql = SELECT_WOODS_BY_TYPES_SORTED.formatted(String.join(", ", Collections.nCopies(distinct.size(), "?")));
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            for (int i = 0; i < distinct.size(); i++) {
+                statement.setString(i + 1, distinct.get(i));
+            }
+            return statement;
+        }, rs -> {
+            callback.row(rs.getString(1), rs.getLong(2), rs.getLong(3));
+        });
+    }
+
+    /**
+     * Returns the digest of the last upload accepted for the type, if it is still current.
+     */
+    public Optional<UploadDigest> findUploadDigest(String type) {
+        return jdbcTemplate.query(SELECT_UPLOAD_DIGEST,
+                (rs, row) -> new UploadDigest(rs.getString(1), rs.getInt(2)), type).stream().findFirst();
+    }
+
+    public void saveUploadDigest(String type, UploadDigest digest) {
+        jdbcTemplate.update(MERGE_UPLOAD_DIGEST, type, digest.digest(), digest.rows());
+    }
+
+    /**
+     * Forgets the upload digests of the types, for writes that did not come from a whole file.
+     */
+    public void deleteUploadDigests(Collection<String> types) {
+        jdbcTemplate.batchUpdate(DELETE_UPLOAD_DIGEST, types.stream().map(type -> new Object[]{type}).toList());
+    }
+}
@@ -2,10 +2,13 @@ package com.hln.challenge.persistence.repository;
 
 import com.hln.challenge.persistence.models.Wood;
 import com.hln.challenge.persistence.models.WoodId;
+import com.hln.challenge.persistence.projections.WoodPrice;
 import lombok.NonNull;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -21,6 +24,12 @@ public interface WoodRepository extends JpaRepository<Wood, WoodId> {
     // This method is used to find all wood entries with a specific type
     List<Wood> findByWoodType_Type(String type);
 
+    // Every wood of a type as (id, price), sorted by price descending then id ascending; no entity is hydrated
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.hln.challenge.persistence.projections.WoodPrice(w.woodId.id, w.price) FROM Wood w "
+            + "WHERE w.woodId.type = :type ORDER BY w.price DESC, w.woodId.id ASC")
+    List<WoodPrice> findPricesByType(@Param("type") String type);
+
     // This method finds all wood types stored in repository
     @Query("SELECT w.type FROM WoodType w")
     List<String> findAllWoodTypes();
@@ -1,11 +1,22 @@
 package com.hln.challenge.persistence.repository;
 
 import com.hln.challenge.persistence.models.WoodType;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 @Repository
 public interface WoodTypeRepository extends JpaRepository<WoodType, String> {
     boolean existsByType(String type);
 
+    // SELECT ... FOR UPDATE: the row stays locked until the calling transaction ends
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM WoodType t WHERE t.type = :type")
+    Optional<WoodType> findForUpdate(@Param("type") String type);
+
 }
@@ -0,0 +1,152 @@
+package com.hln.challenge.persistence.store;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+/**
+ * Stages rows in a temporary file of (id, cents) pairs. Before the first question about them the file is mapped
+ * and sorted in place, then walked once against the stored rows of the type by id, so the rows staged never take
+ * heap whatever their number. The stores supply the stored rows and the merge.
+ */
+abstract class FileStagedUpload implements WoodStore.StagedUpload {
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+    private long rows;
+    private LongBuffer sorted;
+    private int size;
+    private Optional<Long> conflict;
+    private int inserts;
+    private int updates;
+
+    FileStagedUpload(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Streams the stored rows of the type by id ascending.
+     */
+    abstract void forEachStored(PriceRowCallback callback);
+
+    @Override
+    public void stage(long[] ids, long[] cents, int size) {
+        for (int i = 0; i < size; i++) {
+            if (buffer.remaining() < 16) {
+                flush();
+            }
+            buffer.putLong(ids[i]).putLong(cents[i]);
+        }
+        rows += size;
+    }
+
+    @Override
+    public Optional<Long> findConflict() {
+        prepare();
+        return conflict;
+    }
+
+    @Override
+    public int count() {
+        prepare();
+        return size;
+    }
+
+    @Override
+    public int countInserts() {
+        prepare();
+        return inserts;
+    }
+
+    @Override
+    public int countUpdates() {
+        prepare();
+        return updates;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The staged rows sorted by id, one per id, in the first {@link #count} pairs.
+     */
+    LongBuffer sorted() {
+        prepare();
+        return sorted;
+    }
+
+    /**
+     * Walks the staged rows that are new or re-priced in id order, in one more pass over the stored rows.
+     */
+    void forEachChanged(PriceRowCallback callback) {
+        prepare();
+        join(callback, callback);
+    }
+
+    private void prepare() {
+        if (sorted != null) {
+            return;
+        }
+        flush();
+        if (rows * 16 > Integer.MAX_VALUE) {
+            throw new IllegalStateException("A streamed upload cannot exceed 2 GB of staged rows");
+        }
+        try {
+            sorted = channel.map(FileChannel.MapMode.READ_WRITE, 0, rows * 16).asLongBuffer();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Pairs.sort(sorted, (int) rows);
+        conflict = Pairs.firstConflict(sorted, (int) rows);
+        size = Pairs.dedupe(sorted, (int) rows);
+        join((id, cents) -> inserts++, (id, cents) -> updates++);
+    }
+
+    // Merges the stored rows by id against the staged ones, reporting staged rows missing from the store and those
+    // stored at another price
+    private void join(PriceRowCallback inserted, PriceRowCallback updated) {
+        int[] next = {0};
+        forEachStored((id, cents) -> {
+            while (next[0] < size && Pairs.id(sorted, next[0]) < id) {
+                inserted.row(Pairs.id(sorted, next[0]), Pairs.cents(sorted, next[0]));
+                next[0]++;
+            }
+            if (next[0] < size && Pairs.id(sorted, next[0]) == id) {
+                if (Pairs.cents(sorted, next[0]) != cents) {
+                    updated.row(id, Pairs.cents(sorted, next[0]));
+                }
+                next[0]++;
+            }
+        });
+        for (; next[0] < size; next[0]++) {
+            inserted.row(Pairs.id(sorted, next[0]), Pairs.cents(sorted, next[0]));
+        }
+    }
+
+    private void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,133 @@
+package com.hln.challenge.persistence.store;
+
+import com.hln.challenge.config.UploadProperties;
+import com.hln.challenge.persistence.models.Wood;
+import com.hln.challenge.persistence.projections.WoodPrice;
+import com.hln.challenge.persistence.repository.WoodJdbcRepository;
+import com.hln.challenge.persistence.repository.WoodRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps the woods in the database: JPA projections for the sorted reads and plain JDBC for bulk writes, all
+ * joining the caller's transaction. Streamed uploads are staged in a temporary file rather than in a table, which
+ * in-memory H2 would hold on the heap.
+ */
+@Component
+@ConditionalOnProperty(name = "wood.store.type", havingValue = "jpa", matchIfMissing = true)
+public class JpaWoodStore implements WoodStore {
+
+    private final WoodRepository woodRepository;
+    private final WoodJdbcRepository woodJdbcRepository;
+    private final UploadProperties uploadProperties;
+
+    public JpaWoodStore(WoodRepository woodRepository, WoodJdbcRepository woodJdbcRepository,
+                        UploadProperties uploadProperties) {
+        this.woodRepository = woodRepository;
+        this.woodJdbcRepository = woodJdbcRepository;
+        this.uploadProperties = uploadProperties;
+    }
+
+    @Override
+    public List<String> findAllTypes() {
+        return woodRepository.findAllWoodTypes();
+    }
+
+    @Override
+    public List<WoodPrice> findPricesByType(String type) {
+        return woodRepository.findPricesByType(type);
+    }
+
+    @Override
+    public void forEachByTypesSorted(Collection<String> types, TypedPriceRowCallback callback) {
+        woodJdbcRepository.forEachByTypesSorted(types, callback);
+    }
+
+    @Override
+    public void forEachByTypeSorted(String type, PriceRowCallback callback) {
+        woodJdbcRepository.forEachByTypeSorted(type, callback);
+    }
+
+    @Override
+    public PriceSnapshot findPriceSnapshot(String type) {
+        return woodJdbcRepository.findPricesByType(type);
+    }
+
+    @Override
+    public void merge(String type, List<Wood> woods) {
+        woodJdbcRepository.mergeAll(type, woods, uploadProperties.getBatchSize());
+    }
+
+    @Override
+    public void merge(String type, long[] ids, long[] cents, int size) {
+        int batchSize = uploadProperties.getBatchSize();
+        for (int from = 0; from < size; from += batchSize) {
+            woodJdbcRepository.mergeRows(type, ids, cents, from, Math.min(size, from + batchSize));
+        }
+    }
+
+    @Override
+    public StagedUpload stage(String type) {
+        try {
+            return new JdbcStagedUpload(type, Files.createTempFile("wood-staged-", ".tmp"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Optional<UploadDigest> findUploadDigest(String type) {
+        return woodJdbcRepository.findUploadDigest(type);
+    }
+
+    @Override
+    public void saveUploadDigest(String type, UploadDigest digest) {
+        woodJdbcRepository.saveUploadDigest(type, digest);
+    }
+
+    @Override
+    public void deleteUploadDigests(Collection<String> types) {
+        woodJdbcRepository.deleteUploadDigests(types);
+    }
+
+    // Staged rows stay in a temporary file; the stored rows are streamed by id to count and again to merge, and the
+    // changed ones are written in batches, so neither pass holds the upload on the heap
+    private final class JdbcStagedUpload extends FileStagedUpload {
+        private final String type;
+
+        private JdbcStagedUpload(String type, Path file) throws IOException {
+            super(file);
+            this.type = type;
+        }
+
+        @Override
+        void forEachStored(PriceRowCallback callback) {
+            woodJdbcRepository.forEachById(type, callback);
+        }
+
+        @Override
+        public void merge() {
+            int batchSize = uploadProperties.getBatchSize();
+            long[] ids = new long[batchSize];
+            long[] cents = new long[batchSize];
+            int[] size = {0};
+            forEachChanged((id, price) -> {
+                ids[size[0]] = id;
+                cents[size[0]] = price;
+                if (++size[0] == batchSize) {
+                    JpaWoodStore.this.merge(type, ids, cents, size[0]);
+                    size[0] = 0;
+                }
+            });
+            JpaWoodStore.this.merge(type, ids, cents, size[0]);
+        }
+    }
+}
@@ -0,0 +1,527 @@
+package com.hln.challenge.persistence.store;
+
+import com.hln.challenge.config.StoreProperties;
+import com.hln.challenge.persistence.models.Wood;
+import com.hln.challenge.persistence.projections.WoodPrice;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * File-backed store that survives restarts. Writes are appended to a memory-mapped {@link WoodLog} and kept in a
+ * small sorted overlay per type; when the log is full, every logged type is compacted into its {@link Segment},
+ * a sorted file replaced atomically, and the log is emptied. An upload larger than the whole log goes straight
+ * into its type's segment.
+ * <p>
+ * Opening the store maps the segments and replays at most one log's worth of records, so a restart takes about
+ * the same time whatever the number of rows stored. Every method holds the store's lock; the bundle path never
+ * comes here, it reads the price index.
+ * <p>
+ * Writes made inside a transaction are held back until it commits and dropped if it rolls back, so the files never
+ * show rows the database forgot. The transaction does not read its own writes. Between the commit and the writes
+ * being applied their types are in flight, and price snapshots of them wait, so the next writer of a type, which
+ * gets the type's row lock at that commit, still diffs against the rows just committed.
+ */
+@Component
+@ConditionalOnProperty(name = "wood.store.type", havingValue = "log")
+public class LogWoodStore implements WoodStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogWoodStore.class);
+
+    private static final String TYPES_FILE = "types";
+    private static final String LOG_FILE = "wood.log";
+    private static final String DIGESTS_FILE = "digests.properties";
+    // Largest price NUMERIC(10,2) can hold, as in the database
+    private static final long MAX_CENTS = 9_999_999_999L;
+    // Low bits of a price sort key holding the row's position; the inverted cents fill the 34 bits above
+    private static final int POSITION_BITS = 29;
+
+    private final Path directory;
+    // A type's number in the log and in its segment's file name is its position here plus one
+    private final List<String> types = new ArrayList<>();
+    private final Map<String, Integer> typeNumbers = new HashMap<>();
+    private final Map<String, Segment> segments = new HashMap<>();
+    // Logged rows not compacted yet, by type and then id
+    private final Map<String, TreeMap<Long, Long>> overlays = new HashMap<>();
+    private final Properties digests = new Properties();
+    // Types whose committed transactions have writes not applied yet, with how many such transactions each
+    private final Map<String, Integer> inFlight = new HashMap<>();
+    private final WoodLog log;
+
+    public LogWoodStore(StoreProperties properties) throws IOException {
+        long start = System.nanoTime();
+        this.directory = Path.of(properties.getPath());
+        Files.createDirectories(directory);
+        Path typesFile = directory.resolve(TYPES_FILE);
+        if (Files.exists(typesFile)) {
+            for (String type : Files.readAllLines(typesFile, StandardCharsets.UTF_8)) {
+                if (!type.isEmpty()) {
+                    typeNumbers.put(type, typeNumbers.size() + 1);
+                    types.add(type);
+                }
+            }
+        }
+        long segmentRows = 0;
+        for (String type : types) {
+            Path file = segmentFile(typeNumbers.get(type));
+            if (Files.exists(file)) {
+                Segment segment = Segment.map(file);
+                segments.put(type, segment);
+                segmentRows += segment.size();
+            }
+        }
+        Path digestsFile = directory.resolve(DIGESTS_FILE);
+        if (Files.exists(digestsFile)) {
+            try (InputStream in = Files.newInputStream(digestsFile)) {
+                digests.load(in);
+            }
+        }
+        this.log = WoodLog.open(directory.resolve(LOG_FILE), properties.getLogCapacity(),
+                (number, id, cents) -> overlay(types.get(number - 1)).put(id, cents));
+        logger.info("Wood store opened at {}: {} types, {} rows in segments, {} log records, in {} ms",
+                directory.toAbsolutePath(), types.size(), segmentRows, log.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @Override
+    public synchronized List<String> findAllTypes() {
+        return List.copyOf(types);
+    }
+
+    @Override
+    public synchronized List<WoodPrice> findPricesByType(String type) {
+        List<WoodPrice> woods = new ArrayList<>();
+        forEachByPrice(type, (id, cents) -> woods.add(new WoodPrice(id, BigDecimal.valueOf(cents, 2))));
+        return woods;
+    }
+
+    @Override
+    public synchronized void forEachByTypesSorted(Collection<String> types, TypedPriceRowCallback callback) {
+        types.stream().distinct().sorted().forEach(type ->
+                forEachByPrice(type, (id, cents) -> callback.row(type, id, cents)));
+    }
+
+    @Override
+    public synchronized void forEachByTypeSorted(String type, PriceRowCallback callback) {
+        forEachByPrice(type, callback);
+    }
+
+    @Override
+    public synchronized PriceSnapshot findPriceSnapshot(String type) {
+        awaitApplied(type);
+        PriceSnapshot.Builder builder = new PriceSnapshot.Builder();
+        forEachById(type, null, 0, builder::add);
+        return builder.build();
+    }
+
+    @Override
+    public void merge(String type, List<Wood> woods) {
+        checkType(type);
+        LongBuffer pairs = LongBuffer.allocate(2 * woods.size());
+        for (int i = 0; i < woods.size(); i++) {
+            Wood wood = woods.get(i);
+            pairs.put(2 * i, wood.getWoodId().getId());
+            pairs.put(2 * i + 1, cents(wood));
+        }
+        onCommit(type, () -> write(type, pairs, woods.size()), null);
+    }
+
+    @Override
+    public void merge(String type, long[] ids, long[] cents, int size) {
+        checkType(type);
+        LongBuffer pairs = LongBuffer.allocate(2 * size);
+        for (int i = 0; i < size; i++) {
+            if (cents[i] < 0 || cents[i] > MAX_CENTS) {
+                throw new IllegalArgumentException("Price out of range for wood id " + ids[i]);
+            }
+            pairs.put(2 * i, ids[i]);
+            pairs.put(2 * i + 1, cents[i]);
+        }
+        onCommit(type, () -> write(type, pairs, size), null);
+    }
+
+    @Override
+    public StagedUpload stage(String type) {
+        try {
+            return new LogStagedUpload(type, Files.createTempFile(directory, "staged-", ".tmp"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized Optional<UploadDigest> findUploadDigest(String type) {
+        String value = digests.getProperty(type);
+        if (value == null) {
+            return Optional.empty();
+        }
+        int comma = value.indexOf(',');
+        return Optional.of(new UploadDigest(value.substring(0, comma), Integer.parseInt(value.substring(comma + 1))));
+    }
+
+    @Override
+    public void saveUploadDigest(String type, UploadDigest digest) {
+        onCommit(type, () -> {
+            digests.setProperty(type, digest.digest() + "," + digest.rows());
+            storeDigests();
+        }, null);
+    }
+
+    @Override
+    public void deleteUploadDigests(Collection<String> types) {
+        List<String> forgotten = List.copyOf(types);
+        onCommit(null, () -> forgetDigests(forgotten), null);
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        log.close();
+        segments.clear();
+    }
+
+    // Runs a write under the store's lock: at once outside a transaction, otherwise once it commits. The cleanup
+    // runs after the write, or when the transaction ends without it
+    private void onCommit(String type, Runnable write, Runnable cleanup) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            try {
+                synchronized (this) {
+                    write.run();
+                }
+            } finally {
+                if (cleanup != null) {
+                    cleanup.run();
+                }
+            }
+            return;
+        }
+        PendingWrites pending = (PendingWrites) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingWrites();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        if (type != null) {
+            pending.types.add(type);
+        }
+        pending.writes.add(write);
+        if (cleanup != null) {
+            pending.cleanups.add(cleanup);
+        }
+    }
+
+    // Waits out the transactions that committed writes of the type not applied yet
+    private void awaitApplied(String type) {
+        boolean interrupted = false;
+        while (inFlight.containsKey(type)) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void forgetDigests(Collection<String> types) {
+        if (digests.keySet().removeAll(types)) {
+            storeDigests();
+        }
+    }
+
+    // Writes the pairs whose price differs from the stored one; pairs may come in any order
+    private void write(String type, LongBuffer pairs, int size) {
+        int number = register(type);
+        // Forgotten before the rows change, so a crash before the new digest is saved cannot leave a stale one
+        forgetDigests(List.of(type));
+        int[] changed = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (storedCents(type, Pairs.id(pairs, i)) != Pairs.cents(pairs, i)) {
+                changed[count++] = i;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        if (!log.fits(count)) {
+            compactAll();
+        }
+        if (!log.fits(count)) {
+            // More than the whole log holds: sorted and folded straight into the segment
+            Pairs.sort(pairs, size);
+            compact(type, pairs, Pairs.dedupe(pairs, size));
+            return;
+        }
+        try {
+            for (int i = 0; i < count; i++) {
+                log.append(number, Pairs.id(pairs, changed[i]), Pairs.cents(pairs, changed[i]));
+            }
+        } catch (RuntimeException e) {
+            log.abort();
+            throw e;
+        }
+        log.commit();
+        TreeMap<Long, Long> overlay = overlay(type);
+        for (int i = 0; i < count; i++) {
+            overlay.put(Pairs.id(pairs, changed[i]), Pairs.cents(pairs, changed[i]));
+        }
+    }
+
+    private long storedCents(String type, long id) {
+        TreeMap<Long, Long> overlay = overlays.get(type);
+        Long logged = overlay != null ? overlay.get(id) : null;
+        return logged != null ? logged : segment(type).centsOf(id);
+    }
+
+    private void compactAll() {
+        long start = System.nanoTime();
+        int records = log.size();
+        for (String type : List.copyOf(overlays.keySet())) {
+            compact(type, null, 0);
+        }
+        log.reset();
+        logger.info("Compacted {} log records into segments in {} ms", records,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    // Rewrites the type's segment with its logged rows and a sorted batch folded in
+    private void compact(String type, LongBuffer batch, int batchSize) {
+        try (Segment.Writer writer = Segment.writer(segmentFile(typeNumbers.get(type)))) {
+            forEachById(type, batch, batchSize, writer);
+            segments.put(type, writer.commit());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        overlays.remove(type);
+    }
+
+    // Rows of a type by id: the segment's, overridden by the logged ones, overridden by those of a sorted batch
+    private void forEachById(String type, LongBuffer batch, int batchSize, PriceRowCallback callback) {
+        Segment segment = segment(type);
+        Iterator<Map.Entry<Long, Long>> logged = overlays.getOrDefault(type, new TreeMap<>()).entrySet().iterator();
+        Map.Entry<Long, Long> next = logged.hasNext() ? logged.next() : null;
+        int s = 0;
+        int b = 0;
+        while (s < segment.size() || next != null || b < batchSize) {
+            long id = Long.MAX_VALUE;
+            if (s < segment.size()) {
+                id = Math.min(id, segment.id(s));
+            }
+            if (next != null) {
+                id = Math.min(id, next.getKey());
+            }
+            if (b < batchSize) {
+                id = Math.min(id, Pairs.id(batch, b));
+            }
+            long cents = -1;
+            if (s < segment.size() && segment.id(s) == id) {
+                cents = segment.cents(s++);
+            }
+            if (next != null && next.getKey() == id) {
+                cents = next.getValue();
+                next = logged.hasNext() ? logged.next() : null;
+            }
+            if (b < batchSize && Pairs.id(batch, b) == id) {
+                cents = Pairs.cents(batch, b++);
+            }
+            callback.row(id, cents);
+        }
+    }
+
+    // Rows of a type by price descending then id ascending, sorted as primitive keys of inverted cents and position
+    private void forEachByPrice(String type, PriceRowCallback callback) {
+        long bound = (long) segment(type).size() + overlays.getOrDefault(type, new TreeMap<>()).size();
+        if (bound >= 1L << POSITION_BITS) {
+            throw new IllegalStateException("Too many rows to sort for wood type " + type);
+        }
+        long[] ids = new long[(int) bound];
+        long[] cents = new long[(int) bound];
+        int[] size = {0};
+        forEachById(type, null, 0, (id, price) -> {
+            ids[size[0]] = id;
+            cents[size[0]] = price;
+            size[0]++;
+        });
+        // Positions follow the ids, so equal prices come out by id
+        long[] keys = new long[size[0]];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (MAX_CENTS - cents[i]) << POSITION_BITS | i;
+        }
+        Arrays.parallelSort(keys);
+        for (long key : keys) {
+            int i = (int) (key & ((1L << POSITION_BITS) - 1));
+            callback.row(ids[i], cents[i]);
+        }
+    }
+
+    private int register(String type) {
+        Integer number = typeNumbers.get(type);
+        if (number != null) {
+            return number;
+        }
+        checkType(type);
+        try (FileChannel channel = FileChannel.open(directory.resolve(TYPES_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap((type + "\n").getBytes(StandardCharsets.UTF_8)));
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        types.add(type);
+        typeNumbers.put(type, types.size());
+        return types.size();
+    }
+
+    // The types file holds one type per line
+    private static void checkType(String type) {
+        if (type.indexOf('\n') >= 0 || type.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("Invalid wood type: " + type);
+        }
+    }
+
+    private Segment segment(String type) {
+        return segments.getOrDefault(type, Segment.empty());
+    }
+
+    private TreeMap<Long, Long> overlay(String type) {
+        return overlays.computeIfAbsent(type, key -> new TreeMap<>());
+    }
+
+    private Path segmentFile(int number) {
+        return directory.resolve("segment-" + number + ".seg");
+    }
+
+    // Replaced in one atomic move, so a crash leaves either the old digests or the new ones
+    private void storeDigests() {
+        Path file = directory.resolve(DIGESTS_FILE);
+        Path temp = directory.resolve(DIGESTS_FILE + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                digests.store(out, null);
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Rounded to whole cents like NUMERIC(10,2) and held to the same range
+    private static long cents(Wood wood) {
+        long cents = wood.getPrice().setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+        if (wood.getPrice().signum() < 0 || cents > MAX_CENTS) {
+            throw new IllegalArgumentException("Price out of range for wood id " + wood.getWoodId().getId());
+        }
+        return cents;
+    }
+
+    // The writes of one transaction, applied before the listeners that read the store, such as the price index
+    private final class PendingWrites implements TransactionSynchronization {
+        private final List<String> types = new ArrayList<>();
+        private final List<Runnable> writes = new ArrayList<>();
+        private final List<Runnable> cleanups = new ArrayList<>();
+        private boolean marked;
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            synchronized (LogWoodStore.this) {
+                types.forEach(type -> inFlight.merge(type, 1, Integer::sum));
+                marked = true;
+            }
+        }
+
+        @Override
+        public void afterCommit() {
+            synchronized (LogWoodStore.this) {
+                writes.forEach(Runnable::run);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResource(LogWoodStore.this);
+            if (marked) {
+                synchronized (LogWoodStore.this) {
+                    types.forEach(type -> inFlight.computeIfPresent(type, (key, count) -> count == 1 ? null : count - 1));
+                    LogWoodStore.this.notifyAll();
+                }
+            }
+            if (status != STATUS_COMMITTED) {
+                logger.debug("Dropped {} wood store writes of a rolled back transaction", writes.size());
+            }
+            cleanups.forEach(Runnable::run);
+        }
+    }
+
+    // The staged file sits next to the store's files and is compared against the segment and log by id. Merged
+    // inside a transaction, the file is read once it commits and deleted only then
+    private final class LogStagedUpload extends FileStagedUpload {
+        private final String type;
+        private boolean deferred;
+
+        private LogStagedUpload(String type, Path file) throws IOException {
+            super(file);
+            this.type = type;
+        }
+
+        @Override
+        void forEachStored(PriceRowCallback callback) {
+            synchronized (LogWoodStore.this) {
+                awaitApplied(type);
+                forEachById(type, null, 0, callback);
+            }
+        }
+
+        @Override
+        public void merge() {
+            LongBuffer sorted = sorted();
+            int count = count();
+            deferred = TransactionSynchronizationManager.isSynchronizationActive();
+            onCommit(type, () -> write(type, sorted, count), deferred ? LogStagedUpload.super::close : null);
+        }
+
+        @Override
+        public void close() {
+            if (!deferred) {
+                super.close();
+            }
+        }
+    }
+}
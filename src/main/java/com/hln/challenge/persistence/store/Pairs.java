@@ -0,0 +1,108 @@
+package com.hln.challenge.persistence.store;
+
+import java.nio.LongBuffer;
+import java.util.Optional;
+
+/**
+ * Sorting of (id, cents) pairs laid out interleaved in a {@link LongBuffer}, which may be on the heap or mapped
+ * from a file, so large batches are sorted without boxing or copying.
+ */
+final class Pairs {
+
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private Pairs() {
+    }
+
+    /**
+     * Sorts the first {@code size} pairs by id, then by cents.
+     */
+    static void sort(LongBuffer pairs, int size) {
+        sort(pairs, 0, size - 1);
+    }
+
+    /**
+     * Returns an id that a sorted buffer holds with two different prices, if any.
+     */
+    static Optional<Long> firstConflict(LongBuffer pairs, int size) {
+        for (int i = 1; i < size; i++) {
+            if (id(pairs, i - 1) == id(pairs, i) && cents(pairs, i - 1) != cents(pairs, i)) {
+                return Optional.of(id(pairs, i));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Keeps one pair per id of a sorted buffer, moved to its front, and returns the number kept.
+     */
+    static int dedupe(LongBuffer pairs, int size) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (kept > 0 && id(pairs, kept - 1) == id(pairs, i)) {
+                pairs.put(2 * kept - 1, cents(pairs, i));
+            } else {
+                pairs.put(2 * kept, id(pairs, i));
+                pairs.put(2 * kept + 1, cents(pairs, i));
+                kept++;
+            }
+        }
+        return kept;
+    }
+
+    static long id(LongBuffer pairs, int i) {
+        return pairs.get(2 * i);
+    }
+
+    static long cents(LongBuffer pairs, int i) {
+        return pairs.get(2 * i + 1);
+    }
+
+    // Quicksort recursing into the smaller side, so the stack stays logarithmic
+    private static void sort(LongBuffer pairs, int low, int high) {
+        while (high - low >= INSERTION_SORT_THRESHOLD) {
+            int middle = low + (high - low) / 2;
+            long pivotId = id(pairs, middle);
+            long pivotCents = cents(pairs, middle);
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (compare(pairs, i, pivotId, pivotCents) < 0) {
+                    i++;
+                }
+                while (compare(pairs, j, pivotId, pivotCents) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(pairs, i++, j--);
+                }
+            }
+            if (j - low < high - i) {
+                sort(pairs, low, j);
+                low = i;
+            } else {
+                sort(pairs, i, high);
+                high = j;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && compare(pairs, j - 1, id(pairs, j), cents(pairs, j)) > 0; j--) {
+                swap(pairs, j - 1, j);
+            }
+        }
+    }
+
+    private static int compare(LongBuffer pairs, int i, long id, long cents) {
+        int byId = Long.compare(id(pairs, i), id);
+        return byId != 0 ? byId : Long.compare(cents(pairs, i), cents);
+    }
+
+    private static void swap(LongBuffer pairs, int i, int j) {
+        long id = id(pairs, i);
+        long cents = cents(pairs, i);
+        pairs.put(2 * i, id(pairs, j));
+        pairs.put(2 * i + 1, cents(pairs, j));
+        pairs.put(2 * j, id);
+        pairs.put(2 * j + 1, cents);
+    }
+}
@@ -0,0 +1,9 @@
+package com.hln.challenge.persistence.store;
+
+/**
+ * Receives one stored wood as primitives.
+ */
+@FunctionalInterface
+public interface PriceRowCallback {
+    void row(long id, long cents);
+}
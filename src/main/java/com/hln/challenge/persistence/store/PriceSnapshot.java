@@ -0,0 +1,51 @@
+package com.hln.challenge.persistence.store;
+
+import java.util.Arrays;
+
+/**
+ * Stored prices of one type as parallel primitive arrays sorted by id.
+ */
+public final class PriceSnapshot {
+    private final long[] ids;
+    private final long[] cents;
+
+    private PriceSnapshot(long[] ids, long[] cents) {
+        this.ids = ids;
+        this.cents = cents;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Returns the stored price of {@code id} in cents, or -1 when the id is not stored.
+     */
+    public long centsOf(long id) {
+        int position = Arrays.binarySearch(ids, id);
+        return position >= 0 ? cents[position] : -1;
+    }
+
+    /**
+     * Collects rows that arrive in increasing id order.
+     */
+    public static final class Builder {
+        private long[] ids = new long[64];
+        private long[] cents = new long[64];
+        private int size;
+
+        public void add(long id, long price) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                cents = Arrays.copyOf(cents, size * 2);
+            }
+            ids[size] = id;
+            cents[size] = price;
+            size++;
+        }
+
+        public PriceSnapshot build() {
+            return new PriceSnapshot(Arrays.copyOf(ids, size), Arrays.copyOf(cents, size));
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.hln.challenge.persistence.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The compacted rows of one type: a read-only memory-mapped file of (id, cents) pairs sorted by id, behind a
+ * 16-byte header holding a magic number and the row count. Opening one maps the file and reads nothing else, so
+ * it costs the same whatever the number of rows. A replaced segment is simply dropped; its mapping goes once the
+ * garbage collector finds it unreachable.
+ */
+final class Segment {
+
+    private static final int MAGIC = 0x57534547;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int ROW_BYTES = 16;
+    // A single mapping cannot exceed 2 GB
+    private static final long MAX_ROWS = (Integer.MAX_VALUE - HEADER_BYTES) / ROW_BYTES;
+
+    private static final Segment EMPTY = new Segment(LongBuffer.allocate(0), 0);
+
+    // A view of the mapping past the header
+    private final LongBuffer rows;
+    private final int size;
+
+    private Segment(LongBuffer rows, int size) {
+        this.rows = rows;
+        this.size = size;
+    }
+
+    static Segment empty() {
+        return EMPTY;
+    }
+
+    static Segment map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            long count = buffer.remaining() >= HEADER_BYTES ? buffer.getLong(8) : -1;
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                    || count < 0 || HEADER_BYTES + count * ROW_BYTES != channel.size()) {
+                throw new IOException("Corrupt wood segment " + file);
+            }
+            return new Segment(buffer.slice(HEADER_BYTES, buffer.capacity() - HEADER_BYTES).asLongBuffer(),
+                    (int) count);
+        }
+    }
+
+    /**
+     * Starts a segment that replaces {@code file} once committed; until then the file is left as it is.
+     */
+    static Writer writer(Path file) throws IOException {
+        return new Writer(file);
+    }
+
+    int size() {
+        return size;
+    }
+
+    long id(int i) {
+        return rows.get(2 * i);
+    }
+
+    long cents(int i) {
+        return rows.get(2 * i + 1);
+    }
+
+    /**
+     * Returns the price of {@code id} in cents, or -1 when the segment does not hold it.
+     */
+    long centsOf(long id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long found = id(middle);
+            if (found < id) {
+                low = middle + 1;
+            } else if (found > id) {
+                high = middle - 1;
+            } else {
+                return cents(middle);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Writes rows arriving in increasing id order to a temporary file, which replaces the segment in one atomic
+     * move on {@link #commit}.
+     */
+    static final class Writer implements PriceRowCallback, Closeable {
+        private final Path file;
+        private final Path temp;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+        private long count;
+        private boolean committed;
+
+        private Writer(Path file) throws IOException {
+            this.file = file;
+            this.temp = file.resolveSibling(file.getFileName() + ".tmp");
+            this.channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            channel.position(HEADER_BYTES);
+        }
+
+        @Override
+        public void row(long id, long cents) {
+            if (++count > MAX_ROWS) {
+                throw new IllegalStateException("A wood type cannot hold more than " + MAX_ROWS + " rows");
+            }
+            if (buffer.remaining() < ROW_BYTES) {
+                flush();
+            }
+            buffer.putLong(id).putLong(cents);
+        }
+
+        Segment commit() throws IOException {
+            flush();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).putLong(count).flip();
+            channel.write(header, 0);
+            channel.force(true);
+            channel.close();
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            committed = true;
+            return map(file);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                channel.close();
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        private void flush() {
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.hln.challenge.persistence.store;
+
+/**
+ * Receives one stored wood of a read spanning several types, its price as primitive cents.
+ */
+@FunctionalInterface
+public interface TypedPriceRowCallback {
+    void row(String type, long id, long cents);
+}
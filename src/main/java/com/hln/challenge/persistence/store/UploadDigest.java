@@ -0,0 +1,7 @@
+package com.hln.challenge.persistence.store;
+
+/**
+ * Hex SHA-256 of an accepted upload file and the number of distinct rows it held.
+ */
+public record UploadDigest(String digest, int rows) {
+}
@@ -0,0 +1,158 @@
+package com.hln.challenge.persistence.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Fixed-size, memory-mapped write log of (type, id, cents) records of 20 bytes each. A batch of records only
+ * counts once the commit record after it is written and forced to disk; on opening, committed batches are
+ * replayed and anything after the last commit is wiped. Unused space is all zeros, which ends the log.
+ */
+final class WoodLog implements Closeable {
+
+    /**
+     * Receives each committed record while the log is opened.
+     */
+    @FunctionalInterface
+    interface Replay {
+        void row(int type, long id, long cents);
+    }
+
+    private static final int RECORD_BYTES = 20;
+    // Type of a commit record, whose id field holds the number of records it commits
+    private static final int COMMIT = -1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    // Records up to and including the last commit
+    private int committed;
+    private int pending;
+
+    private WoodLog(FileChannel channel, MappedByteBuffer buffer, int capacity) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Maps the log, growing the file to {@code capacity} records if needed, and replays its committed batches.
+     * Types are numbered from 1.
+     */
+    static WoodLog open(Path file, int capacity, Replay replay) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long bytes = Math.max(channel.size(), (long) capacity * RECORD_BYTES);
+        if (bytes > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IllegalArgumentException("The wood log cannot exceed 2 GB");
+        }
+        WoodLog log = new WoodLog(channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes),
+                (int) (bytes / RECORD_BYTES));
+        log.recover(replay);
+        return log;
+    }
+
+    /**
+     * Tells whether a batch of {@code records} and its commit record fit in the space left.
+     */
+    boolean fits(int records) {
+        return (long) committed + pending + records + 1 <= capacity;
+    }
+
+    boolean isEmpty() {
+        return committed == 0;
+    }
+
+    /**
+     * Records written since the log was last emptied, commit records included.
+     */
+    int size() {
+        return committed;
+    }
+
+    void append(int type, long id, long cents) {
+        if (!fits(1)) {
+            throw new IllegalStateException("The wood log is full");
+        }
+        write(committed + pending, type, id, cents);
+        pending++;
+    }
+
+    void commit() {
+        write(committed + pending, COMMIT, pending, 0);
+        buffer.force();
+        committed += pending + 1;
+        pending = 0;
+    }
+
+    /**
+     * Drops the records appended since the last commit.
+     */
+    void abort() {
+        zero(committed, committed + pending);
+        pending = 0;
+    }
+
+    /**
+     * Empties the log, once everything in it is stored elsewhere.
+     */
+    void reset() {
+        zero(0, committed + pending);
+        buffer.force();
+        committed = 0;
+        pending = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private void recover(Replay replay) {
+        int start = 0;
+        int end = 0;
+        while (end < capacity && type(end) != 0) {
+            if (type(end) == COMMIT) {
+                if (buffer.getLong(end * RECORD_BYTES + 4) != end - start) {
+                    break;
+                }
+                for (int i = start; i < end; i++) {
+                    replay.row(type(i), buffer.getLong(i * RECORD_BYTES + 4), buffer.getLong(i * RECORD_BYTES + 12));
+                }
+                start = end + 1;
+            }
+            end++;
+        }
+        committed = start;
+        // Wipe a batch cut short by a crash, so it can never be mistaken for part of a later one
+        int dirty = start;
+        while (dirty < capacity && type(dirty) != 0) {
+            dirty++;
+        }
+        zero(start, dirty);
+        buffer.force();
+    }
+
+    private int type(int record) {
+        return buffer.getInt(record * RECORD_BYTES);
+    }
+
+    private void write(int record, int type, long id, long cents) {
+        int offset = record * RECORD_BYTES;
+        buffer.putInt(offset, type);
+        buffer.putLong(offset + 4, id);
+        buffer.putLong(offset + 12, cents);
+    }
+
+    private void zero(int from, int to) {
+        for (int record = from; record < to; record++) {
+            write(record, 0, 0, 0);
+        }
+    }
+}
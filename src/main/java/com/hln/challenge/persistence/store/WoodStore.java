@@ -0,0 +1,106 @@
+package com.hln.challenge.persistence.store;
+
+import com.hln.challenge.persistence.models.Wood;
+import com.hln.challenge.persistence.projections.WoodPrice;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Where the wood rows live. The services only read and write woods through this interface; the backend is picked
+ * with {@code wood.store.type}: {@code jpa} (default) keeps them in the database next to the wood types,
+ * {@code log} in memory-mapped files under {@code wood.store.path} that survive a restart.
+ * <p>
+ * Wood types always stay in the database. Writes take part in the caller's transaction: the database backend
+ * writes through it, the log backend holds them back until it commits and drops them if it rolls back.
+ */
+public interface WoodStore {
+
+    /**
+     * Types that have rows, or at least had their type registered with the store.
+     */
+    List<String> findAllTypes();
+
+    /**
+     * Every wood of a type as (id, price), sorted by price descending then id ascending.
+     */
+    List<WoodPrice> findPricesByType(String type);
+
+    /**
+     * Streams every wood of the given types, grouped by type and then sorted like {@link #findPricesByType}, without
+     * building a list or a {@code BigDecimal} per row.
+     */
+    void forEachByTypesSorted(Collection<String> types, TypedPriceRowCallback callback);
+
+    /**
+     * Streams every wood of a type in the order of {@link #findPricesByType} without building a list.
+     */
+    void forEachByTypeSorted(String type, PriceRowCallback callback);
+
+    /**
+     * Reads every stored (id, price) of a type, ordered by id for lookups.
+     */
+    PriceSnapshot findPriceSnapshot(String type);
+
+    /**
+     * Inserts or overwrites the given woods of one type.
+     */
+    void merge(String type, List<Wood> woods);
+
+    /**
+     * Inserts or overwrites the first {@code size} rows of the arrays, given as ids and prices in cents.
+     */
+    void merge(String type, long[] ids, long[] cents, int size);
+
+    /**
+     * Starts a streamed upload whose rows are kept apart from the stored ones until {@link StagedUpload#merge}.
+     */
+    StagedUpload stage(String type);
+
+    /**
+     * Returns the digest of the last upload accepted for the type, if it is still current.
+     */
+    Optional<UploadDigest> findUploadDigest(String type);
+
+    void saveUploadDigest(String type, UploadDigest digest);
+
+    /**
+     * Forgets the upload digests of the types, for writes that did not come from a whole file.
+     */
+    void deleteUploadDigests(Collection<String> types);
+
+    /**
+     * Rows of one streamed upload, staged chunk by chunk in a temporary file, so the heap they need does not
+     * depend on the file size.
+     */
+    interface StagedUpload extends AutoCloseable {
+
+        /**
+         * Adds the first {@code size} rows of a parsed chunk; identical rows collapse into one.
+         */
+        void stage(long[] ids, long[] cents, int size);
+
+        /**
+         * Returns an id staged with two different prices, if any.
+         */
+        Optional<Long> findConflict();
+
+        int count();
+
+        int countInserts();
+
+        int countUpdates();
+
+        /**
+         * Writes the staged rows that are new or re-priced.
+         */
+        void merge();
+
+        /**
+         * Drops the staged rows, merged or not.
+         */
+        @Override
+        void close();
+    }
+}
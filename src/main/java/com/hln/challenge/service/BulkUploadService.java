@@ -0,0 +1,186 @@
+package com.hln.challenge.service;
+
+import com.hln.challenge.config.UploadProperties;
+import com.hln.challenge.exception.BadRequestException;
+import com.hln.challenge.service.dto.BulkUploadResult;
+import com.hln.challenge.service.dto.TypeUploadResult;
+import com.hln.challenge.service.dto.UploadResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Uploads several wood types in one request. Each type is ingested on its own virtual thread and in its own
+ * transaction, so a bad file fails only its type and the others are still stored.
+ */
+@Service
+public class BulkUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkUploadService.class);
+
+    private final WoodService woodService;
+    private final UploadProperties uploadProperties;
+
+    public BulkUploadService(WoodService woodService, UploadProperties uploadProperties) {
+        this.woodService = woodService;
+        this.uploadProperties = uploadProperties;
+    }
+
+    /**
+     * Every part holds the file of the type it is named after; a {@code .zip} part instead holds one file per
+     * type, each named after its type (an extension such as {@code .tdf} is ignored).
+     */
+    public BulkUploadResult processBulkUpload(MultiValueMap<String, MultipartFile> parts) {
+        long start = System.nanoTime();
+        List<Path> spooled = new ArrayList<>();
+        try {
+            Map<String, Supplier<TypeUploadResult>> uploads = new LinkedHashMap<>();
+            ZipBudget budget = new ZipBudget(uploadProperties.getMaxZipEntries(), uploadProperties.getMaxZipBytes());
+            for (Map.Entry<String, List<MultipartFile>> part : parts.entrySet()) {
+                for (MultipartFile file : part.getValue()) {
+                    if (isZip(file)) {
+                        addZipEntries(file, uploads, spooled, budget);
+                    } else {
+                        addUpload(uploads, part.getKey(), () -> woodService.ingestFileUpload(part.getKey(), file));
+                    }
+                }
+            }
+            if (uploads.isEmpty()) {
+                throw new BadRequestException("No files uploaded");
+            }
+
+            List<Future<TypeUploadResult>> futures = new ArrayList<>();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                uploads.values().forEach(upload -> futures.add(executor.submit(upload::get)));
+            }
+            List<TypeUploadResult> results = futures.stream().map(Future::resultNow).toList();
+            return new BulkUploadResult(results, elapsedMillis(start));
+        } finally {
+            spooled.forEach(BulkUploadService::deleteSpool);
+        }
+    }
+
+    private void addUpload(Map<String, Supplier<TypeUploadResult>> uploads, String type, Supplier<UploadResult> upload) {
+        if (type == null || type.isBlank()) {
+            throw new BadRequestException("Every file must be named after its wood type");
+        }
+        if (uploads.containsKey(type)) {
+            throw new BadRequestException("Duplicate file for wood type " + type);
+        }
+        uploads.put(type, () -> isolated(type, upload));
+    }
+
+    // Zip entries are spooled to disk up front, since the stream can only be read in order. A zip that cannot be
+    // read fails as a part of its own, named after the zip, and the entries read whole before the damage still go
+    // ahead; going over the budget rejects the whole upload instead
+    private void addZipEntries(MultipartFile zip, Map<String, Supplier<TypeUploadResult>> uploads, List<Path> spooled,
+                               ZipBudget budget) {
+        try (ZipInputStream in = new ZipInputStream(zip.getInputStream())) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                String name = baseName(entry.getName());
+                if (entry.isDirectory() || name.startsWith(".")) {
+                    continue;
+                }
+                budget.addEntry();
+                Path spool = Files.createTempFile("wood-upload-", ".tdf");
+                spooled.add(spool);
+                try (OutputStream out = Files.newOutputStream(spool)) {
+                    budget.copy(in, out);
+                }
+                String type = name.contains(".") ? name.substring(0, name.lastIndexOf('.')) : name;
+                addUpload(uploads, type, () -> woodService.processFileUpload(type, spool));
+            }
+        } catch (IOException e) {
+            String part = zip.getOriginalFilename() != null ? zip.getOriginalFilename() : zip.getName();
+            String error = "Error reading zip file: " + e.getMessage();
+            logger.warn("Could not read zip file '{}'", part, e);
+            uploads.putIfAbsent(part, () -> TypeUploadResult.failed(part, error, 0));
+        }
+    }
+
+    private static TypeUploadResult isolated(String type, Supplier<UploadResult> upload) {
+        long start = System.nanoTime();
+        try {
+            return TypeUploadResult.succeeded(upload.get(), elapsedMillis(start));
+        } catch (BadRequestException e) {
+            return TypeUploadResult.failed(type, e.getMessage(), elapsedMillis(start));
+        } catch (RuntimeException e) {
+            logger.error("Bulk upload failed for type '{}'", type, e);
+            return TypeUploadResult.failed(type, "Internal error", elapsedMillis(start));
+        }
+    }
+
+    // Split by hand: Path.of rejects some names a zip may carry, and the entry is never resolved against a directory
+    private static String baseName(String entryName) {
+        return entryName.substring(Math.max(entryName.lastIndexOf('/'), entryName.lastIndexOf('\\')) + 1);
+    }
+
+    // Bounds what the zips of one request may expand to, so a small archive cannot fill the disk
+    private static final class ZipBudget {
+        private final int maxEntries;
+        private final long maxBytes;
+        private final byte[] buffer = new byte[1 << 16];
+        private int entries;
+        private long bytes;
+
+        ZipBudget(int maxEntries, long maxBytes) {
+            this.maxEntries = maxEntries;
+            this.maxBytes = maxBytes;
+        }
+
+        void addEntry() {
+            if (++entries > maxEntries) {
+                throw new BadRequestException("Zip files hold more than " + maxEntries + " entries");
+            }
+        }
+
+        void copy(InputStream in, OutputStream out) throws IOException {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes += read;
+                if (bytes > maxBytes) {
+                    throw new BadRequestException("Zip files expand to more than " + maxBytes + " bytes");
+                }
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+
+    private static boolean isZip(MultipartFile file) {
+        String name = file.getOriginalFilename();
+        return "application/zip".equals(file.getContentType())
+                || (name != null && name.toLowerCase().endsWith(".zip"));
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private static void deleteSpool(Path spool) {
+        try {
+            Files.deleteIfExists(spool);
+        } catch (IOException e) {
+            logger.warn("Could not delete upload spool file {}", spool, e);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.hln.challenge.service;
+
+import com.hln.challenge.config.UploadProperties;
+import com.hln.challenge.exception.BadRequestException;
+import com.hln.challenge.exception.NotFoundException;
+import com.hln.challenge.exception.TooManyRequestsException;
+import com.hln.challenge.service.dto.UploadJobStatus;
+import com.hln.challenge.service.dto.UploadJobStatus.State;
+import com.hln.challenge.service.dto.UploadResult;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs uploads in the background. The file is spooled to disk and queued for a small, fixed pool of workers, and
+ * the caller polls the job for its progress and outcome.
+ * <p>
+ * The queue is bounded: once it is full new uploads are turned away with a {@link TooManyRequestsException} rather
+ * than piling up on disk. Finished jobs stay queryable until {@code retainedJobs} newer ones have finished.
+ */
+@Service
+public class UploadJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadJobService.class);
+
+    private final WoodService woodService;
+    private final ThreadPoolExecutor workers;
+    private final int retainedJobs;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    // Finished jobs, oldest first
+    private final Deque<String> finished = new ArrayDeque<>();
+
+    public UploadJobService(WoodService woodService, UploadProperties uploadProperties) {
+        this.woodService = woodService;
+        this.retainedJobs = uploadProperties.getRetainedJobs();
+        this.workers = new ThreadPoolExecutor(uploadProperties.getJobWorkers(), uploadProperties.getJobWorkers(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(uploadProperties.getJobQueueCapacity()),
+                new CustomizableThreadFactory("upload-job-"), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Spools the file and queues its upload, returning the job as it stands once queued.
+     */
+    public UploadJobStatus submit(String type, MultipartFile file) {
+        // Checked before spooling too, so a full queue does not cost a copy of the file
+        if (workers.getQueue().remainingCapacity() == 0) {
+            throw tooManyRequests();
+        }
+        Path spool;
+        try {
+            spool = Files.createTempFile("wood-upload-", ".tdf");
+        } catch (IOException e) {
+            throw new BadRequestException("Error reading file: " + e.getMessage());
+        }
+        try {
+            file.transferTo(spool);
+        } catch (IOException e) {
+            deleteSpool(spool);
+            throw new BadRequestException("Error reading file: " + e.getMessage());
+        }
+
+        Job job = new Job(UUID.randomUUID().toString(), type);
+        jobs.put(job.id, job);
+        try {
+            workers.execute(new QueuedUpload(job, spool));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            deleteSpool(spool);
+            throw tooManyRequests();
+        }
+        logger.info("Queued upload job {} for type: {}", job.id, type);
+        return job.status();
+    }
+
+    public UploadJobStatus getStatus(String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            throw new NotFoundException("Unknown upload job: " + id);
+        }
+        return job.status();
+    }
+
+    /**
+     * Stops the workers. Jobs still queued never run, so they are failed here and their spool files deleted; a
+     * running job is interrupted and deletes its own.
+     */
+    @PreDestroy
+    public void shutdown() {
+        for (Runnable task : workers.shutdownNow()) {
+            QueuedUpload upload = (QueuedUpload) task;
+            upload.job.error = "Server shutting down";
+            upload.job.state = State.FAILED;
+            deleteSpool(upload.spool);
+        }
+    }
+
+    private void run(Job job, Path spool) {
+        job.state = State.RUNNING;
+        try {
+            job.result = woodService.processFileUpload(job.type, spool, rows -> job.rowsParsed = rows);
+            job.state = State.SUCCEEDED;
+        } catch (BadRequestException e) {
+            job.error = e.getMessage();
+            job.state = State.FAILED;
+        } catch (RuntimeException e) {
+            logger.error("Upload job {} failed for type '{}'", job.id, job.type, e);
+            job.error = "Internal error";
+            job.state = State.FAILED;
+        } finally {
+            deleteSpool(spool);
+            retire(job.id);
+        }
+    }
+
+    // Forgets the oldest finished jobs beyond the retention limit
+    private synchronized void retire(String id) {
+        finished.addLast(id);
+        while (finished.size() > retainedJobs) {
+            jobs.remove(finished.removeFirst());
+        }
+    }
+
+    private static TooManyRequestsException tooManyRequests() {
+        return new TooManyRequestsException("Too many uploads in progress, retry later");
+    }
+
+    private static void deleteSpool(Path spool) {
+        try {
+            Files.deleteIfExists(spool);
+        } catch (IOException e) {
+            logger.warn("Could not delete upload spool file {}", spool, e);
+        }
+    }
+
+    private final class QueuedUpload implements Runnable {
+        private final Job job;
+        private final Path spool;
+
+        private QueuedUpload(Job job, Path spool) {
+            this.job = job;
+            this.spool = spool;
+        }
+
+        @Override
+        public void run() {
+            UploadJobService.this.run(job, spool);
+        }
+    }
+
+    // Written by the worker, read by pollers; the state is written last so a finished state comes with its outcome
+    private static final class Job {
+        private final String id;
+        private final String type;
+        private volatile State state = State.QUEUED;
+        private volatile long rowsParsed;
+        private volatile UploadResult result;
+        private volatile String error;
+
+        private Job(String id, String type) {
+            this.id = id;
+            this.type = type;
+        }
+
+        private UploadJobStatus status() {
+            State current = state;
+            UploadResult outcome = result;
+            return new UploadJobStatus(id, type, current, rowsParsed,
+                    outcome == null ? 0 : outcome.getInserted(),
+                    outcome == null ? 0 : outcome.getUpdated(),
+                    outcome == null ? 0 : outcome.getUnchanged(),
+                    error);
+        }
+    }
+}
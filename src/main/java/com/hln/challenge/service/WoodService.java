@@ -1,100 +1,551 @@
 package com.hln.challenge.service;
 
+import com.hln.challenge.config.UploadProperties;
 import com.hln.challenge.exception.BadRequestException;
+import com.hln.challenge.exception.NotFoundException;
 import com.hln.challenge.persistence.models.Wood;
 import com.hln.challenge.persistence.models.WoodId;
 import com.hln.challenge.persistence.models.WoodType;
-import com.hln.challenge.persistence.repository.WoodRepository;
-import com.hln.challenge.persistence.repository.WoodTypeRepository;
+import com.hln.challenge.persistence.store.PriceRowCallback;
+import com.hln.challenge.persistence.store.WoodStore;
+import com.hln.challenge.service.bundle.BundleCounter;
+import com.hln.challenge.service.bundle.BundleCursor;
+import com.hln.challenge.service.bundle.BundleEnumerator;
+import com.hln.challenge.service.bundle.BundleKey;
+import com.hln.challenge.service.bundle.BundleSearch;
+import com.hln.challenge.service.bundle.Cents;
+import com.hln.challenge.service.bundle.Combination;
+import com.hln.challenge.service.bundle.CompactBundleId;
+import com.hln.challenge.service.bundle.PriceColumn;
+import com.hln.challenge.service.cache.BundleResultCache;
 import com.hln.challenge.service.dto.Bundle;
+import com.hln.challenge.service.dto.BundleCount;
+import com.hln.challenge.service.dto.BundleWood;
+import com.hln.challenge.service.dto.BundlePage;
+import com.hln.challenge.service.dto.UploadResult;
+import com.hln.challenge.service.index.WoodPriceIndex;
+import com.hln.challenge.service.index.WoodPriceIndex.VersionedColumn;
+import com.hln.challenge.service.index.WoodTypeRegistry;
+import com.hln.challenge.service.metrics.WoodMetrics;
+import com.hln.challenge.service.parser.ParallelTdfParser;
+import com.hln.challenge.service.parser.ParallelTdfParser.ParsedRows;
+import com.hln.challenge.service.parser.TdfParser;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.*;
 import java.util.stream.Collectors;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
 
 @Service
 public class WoodService {
 
-    private final WoodRepository woodRepository;
-    private final WoodTypeRepository woodTypeRepository;
+    private final WoodStore woodStore;
+    private final WoodTypeRegistry typeRegistry;
     private final WoodTransactionalService woodTransactionalService;
+    private final WoodPriceIndex priceIndex;
+    private final UploadProperties uploadProperties;
+    private final WoodMetrics metrics;
+    private final BundleResultCache bundleCache;
 
     private static final Logger logger = LoggerFactory.getLogger(WoodService.class);
+    // Rows between two progress reports of a sequential parse
+    private static final int PROGRESS_INTERVAL = 10_000;
+    private static final LongConsumer NO_PROGRESS = rows -> { };
+    private static final int DIGEST_BUFFER_SIZE = 1 << 16;
 
-    public WoodService(WoodRepository woodRepository, WoodTypeRepository woodTypeRepository, WoodTransactionalService woodTransactionalService) {
-        this.woodRepository = woodRepository;
-        this.woodTypeRepository = woodTypeRepository;
+    public WoodService(WoodStore woodStore, WoodTypeRegistry typeRegistry,
+                       WoodTransactionalService woodTransactionalService, WoodPriceIndex priceIndex,
+                       UploadProperties uploadProperties, WoodMetrics metrics, BundleResultCache bundleCache) {
+        this.woodStore = woodStore;
+        this.typeRegistry = typeRegistry;
         this.woodTransactionalService = woodTransactionalService;
+        this.priceIndex = priceIndex;
+        this.uploadProperties = uploadProperties;
+        this.metrics = metrics;
+        this.bundleCache = bundleCache;
     }
 
-    public List<Wood> processFileUpload(String type, MultipartFile file) {
+    public UploadResult processFileUpload(String type, MultipartFile file) {
+        UploadResult result = ingestFileUpload(type, file);
+        // Read back once the upload has committed: the response lists every stored wood of the type
+        result.setWoods(woodStore.findPricesByType(type));
+        return result;
+    }
+
+    /**
+     * Same as {@link #processFileUpload(String, MultipartFile)} without reading the stored woods back; the result
+     * carries counts only.
+     */
+    public UploadResult ingestFileUpload(String type, MultipartFile file) {
+        logger.info("Processing file upload for type: {}", type);
+        WoodType woodType = findOrCreateType(type);
+
+        String digest = digest(type, file);
+        return skipIfUnchanged(type, digest).orElseGet(() -> file.getSize() >= uploadProperties.getParallelParseThreshold()
+                ? upsert(type, parseInParallel(type, file), digest)
+                : upsert(type, parseWoods(woodType, file, NO_PROGRESS), digest));
+    }
+
+    /**
+     * Same as {@link #processFileUpload(String, MultipartFile)} for a file that is already on disk.
+     */
+    public UploadResult processFileUpload(String type, Path file) {
+        return processFileUpload(type, file, NO_PROGRESS);
+    }
+
+    /**
+     * Same as {@link #processFileUpload(String, Path)}, reporting the rows parsed so far to {@code rowsParsed}
+     * every {@value #PROGRESS_INTERVAL} rows and once parsing is done.
+     */
+    public UploadResult processFileUpload(String type, Path file, LongConsumer rowsParsed) {
         logger.info("Processing file upload for type: {}", type);
-        // Check if the WoodType exists in the database, if not, create it
-        WoodType woodType = woodTypeRepository.findById(type)
-                .orElseGet(() -> {
-                    logger.info("Creating new wood type: {}", type);
-                    WoodType newType = new WoodType(type);
-                    return woodTypeRepository.save(newType);
+        WoodType woodType = findOrCreateType(type);
+
+        String digest = digest(type, () -> Files.newInputStream(file));
+        Optional<UploadResult> skipped = skipIfUnchanged(type, digest);
+        if (skipped.isPresent()) {
+            return skipped.get();
+        }
+        try {
+            if (Files.size(file) >= uploadProperties.getParallelParseThreshold()) {
+                return upsert(type, parseInParallel(type, file, rowsParsed), digest);
+            }
+        } catch (IOException e) {
+            throw new BadRequestException("Error reading file: " + e.getMessage());
+        }
+        return upsert(type, parseWoods(woodType, () -> Files.newInputStream(file), rowsParsed), digest);
+    }
+
+    /**
+     * Ingests the file in fixed-size chunks without materializing it; the result carries counts only; read the
+     * stored values back with {@link #forEachCurrentWood}.
+     */
+    public UploadResult processStreamingUpload(String type, MultipartFile file) {
+        logger.info("Processing streaming file upload for type: {}", type);
+        findOrCreateType(type);
+        String digest = digest(type, file);
+        Optional<UploadResult> skipped = skipIfUnchanged(type, digest);
+        if (skipped.isPresent()) {
+            return skipped.get();
+        }
+        UploadResult result;
+        try (InputStream in = file.getInputStream()) {
+            result = woodTransactionalService.ingestChunked(type, in, digest);
+        } catch (IOException e) {
+            throw new BadRequestException("Error reading file: " + e.getMessage());
+        }
+        metrics.countRows(type, "parsed", result.getInserted() + result.getUpdated() + result.getUnchanged());
+        metrics.countFiles(type, "processed");
+        countWrites(result);
+        return result;
+    }
+
+    private UploadResult upsert(String type, List<Wood> woods, String digest) {
+        return upsert(type, woods.size(), () -> woodTransactionalService.upsertAll(type, woods, digest));
+    }
+
+    // Rows from the parallel parser go to the store as the primitive arrays they were parsed into
+    private UploadResult upsert(String type, ParsedRows rows, String digest) {
+        return upsert(type, rows.size(), () -> woodTransactionalService.upsertParsed(type, rows, digest));
+    }
+
+    private UploadResult upsert(String type, int rows, Supplier<UploadResult> upsert) {
+        metrics.countRows(type, "parsed", rows);
+        UploadResult result;
+        try {
+            result = upsert.get();
+        } catch (BadRequestException e) {
+            metrics.countRows(type, "rejected", rows);
+            metrics.countFiles(type, "rejected");
+            throw e;
+        }
+        metrics.countFiles(type, "processed");
+        countWrites(result);
+        return result;
+    }
+
+    // A file identical to the last one accepted for the type would change nothing, so it is neither parsed nor written
+    private Optional<UploadResult> skipIfUnchanged(String type, String digest) {
+        return woodStore.findUploadDigest(type)
+                .filter(last -> last.digest().equals(digest))
+                .map(last -> {
+                    logger.info("Upload for type '{}' matches the last accepted file; {} rows unchanged", type, last.rows());
+                    UploadResult result = new UploadResult(type, null, 0, 0, last.rows());
+                    metrics.countFiles(type, "skipped");
+                    countWrites(result);
+                    return result;
                 });
+    }
+
+    // Hex SHA-256 of the file; one extra read, far cheaper than parsing and diffing a resent file
+    private String digest(String type, InputStreamSource source) {
+        return metrics.timeUpload("digest", type, () -> {
+            MessageDigest sha256 = sha256();
+            try (InputStream in = source.getInputStream()) {
+                byte[] buffer = new byte[DIGEST_BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    sha256.update(buffer, 0, read);
+                }
+            } catch (IOException e) {
+                throw new BadRequestException("Error reading file: " + e.getMessage());
+            }
+            return HexFormat.of().formatHex(sha256.digest());
+        });
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
 
-        List<Wood> woods = parseWoodDataFromFile(type, file);
+    private void countWrites(UploadResult result) {
+        metrics.countRows(result.getType(), "inserted", result.getInserted());
+        metrics.countRows(result.getType(), "updated", result.getUpdated());
+        metrics.countRows(result.getType(), "unchanged", result.getUnchanged());
+    }
 
-        // Set the WoodType on each Wood object
-        woods.forEach(wood -> wood.setWoodType(woodType));
+    /**
+     * Streams all current woods of a type from the store, sorted by price descending then id ascending.
+     */
+    public void forEachCurrentWood(String type, PriceRowCallback callback) {
+        woodStore.forEachByTypeSorted(type, callback);
+    }
 
-        return woodTransactionalService.validateAndSave(woods);
+    // Check if the WoodType exists, if not, create it
+    private WoodType findOrCreateType(String type) {
+        return typeRegistry.getOrCreate(type);
     }
 
+    /**
+     * Returns the bundles from the result cache while none of the types has been uploaded to since they were
+     * combined. The returned list is shared and unmodifiable.
+     */
     public List<Bundle> getBundles(String format, Double minPrice, Double maxPrice) {
+        return getBundles(format, minPrice, maxPrice, false);
+    }
+
+    /**
+     * Like {@link #getBundles(String, Double, Double)}, with {@link CompactBundleId compact ids} when asked.
+     */
+    public List<Bundle> getBundles(String format, Double minPrice, Double maxPrice, boolean compactIds) {
+        List<String> typesInFormat = timedParseFormat(format);
+        long minCents = minPrice == null ? 0 : toCents(minPrice, RoundingMode.CEILING);
+        long maxCents = maxPrice == null ? Long.MAX_VALUE : toCents(maxPrice, RoundingMode.FLOOR);
+        // Read before createBundles loads the columns, so an entry is never stamped newer than its prices
+        long[] generations = new long[typesInFormat.size()];
+        for (int j = 0; j < generations.length; j++) {
+            generations[j] = priceIndex.generation(typesInFormat.get(j));
+        }
+        List<Bundle> bundles = bundleCache.get(new BundleResultCache.Key(typesInFormat, minCents, maxCents, compactIds),
+                generations, () -> createBundles(typesInFormat, minPrice, maxPrice, compactIds));
+        metrics.recordBundleCount(bundles.size());
+        return bundles;
+    }
+
+    /**
+     * Returns a strong entity tag for a bundle response: a digest of the normalized request and of the generation of
+     * every type it combines, so it only changes when an upload re-prices one of them or the application restarts.
+     * {@code variant} names the endpoint and its remaining parameters. Read it before combining: an upload in between
+     * can only leave the tag older than the body, which costs the client one more full response.
+     */
+    public String bundleETag(String format, Double minPrice, Double maxPrice, String variant) {
         List<String> typesInFormat = parseFormat(format);
-        if (typesInFormat.isEmpty()) {
-            throw new BadRequestException("Invalid format: No valid wood types found");
+        long minCents = minPrice == null ? 0 : toCents(minPrice, RoundingMode.CEILING);
+        long maxCents = maxPrice == null ? Long.MAX_VALUE : toCents(maxPrice, RoundingMode.FLOOR);
+        StringBuilder request = new StringBuilder(variant).append('|').append(minCents).append('|').append(maxCents)
+                .append('|').append(priceIndex.epoch());
+        for (String type : typesInFormat) {
+            // Length-prefixed, so no type name can run into the next field
+            request.append('|').append(type.length()).append(':').append(type)
+                    .append('=').append(priceIndex.generation(type));
+        }
+        byte[] hash = sha256().digest(request.toString().getBytes(StandardCharsets.UTF_8));
+        return '"' + HexFormat.of().formatHex(hash, 0, 16) + '"';
+    }
+
+    /**
+     * Validates the request up front, then returns the bundles as a lazy stream for incremental writing.
+     */
+    public Stream<Bundle> getBundleStream(String format, Double minPrice, Double maxPrice) {
+        return getBundleStream(format, minPrice, maxPrice, false);
+    }
+
+    public Stream<Bundle> getBundleStream(String format, Double minPrice, Double maxPrice, boolean compactIds) {
+        List<String> typesInFormat = timedParseFormat(format);
+        long[] count = {0};
+        return streamBundles(typesInFormat, minPrice, maxPrice, null, compactIds)
+                .peek(bundle -> count[0]++)
+                .onClose(() -> metrics.recordBundleCount(count[0]));
+    }
+
+    /**
+     * Returns at most {@code limit} bundles following the bundle encoded in {@code cursor} (or the first ones when null).
+     * The enumeration resumes from the cursor's price and id instead of regenerating and skipping earlier pages.
+     */
+    public BundlePage getBundlePage(String format, Double minPrice, Double maxPrice, int limit, String cursor) {
+        return getBundlePage(format, minPrice, maxPrice, limit, cursor, false);
+    }
+
+    public BundlePage getBundlePage(String format, Double minPrice, Double maxPrice, int limit, String cursor,
+                                    boolean compactIds) {
+        if (limit < 1) {
+            throw new BadRequestException("Invalid limit: " + limit);
+        }
+        List<String> typesInFormat = timedParseFormat(format);
+        BundleKey after = cursor == null ? null : decodeCursor(cursor, typesInFormat.size());
+
+        List<Bundle> bundles = metrics.timeBundle("combine", () -> streamBundles(typesInFormat, minPrice, maxPrice, after, compactIds)
+                .limit(limit + 1L)
+                .collect(Collectors.toList()));
+        String nextCursor = null;
+        if (bundles.size() > limit) {
+            bundles.remove(limit);
+            Bundle last = bundles.get(limit - 1);
+            // Built from the wood ids, which a compact bundle id does not spell out
+            String woodIds = last.getBundle().stream()
+                    .map(wood -> Long.toString(wood.getId()))
+                    .collect(Collectors.joining("-"));
+            nextCursor = BundleCursor.encode(last.getPrice().movePointRight(2).longValueExact(), woodIds);
+        }
+        metrics.recordBundleCount(bundles.size());
+        return new BundlePage(bundles, bundles.size(), nextCursor);
+    }
+
+    /**
+     * Returns the {@code k} bundles within the bounds whose price is closest to {@code target}, nearest first. With
+     * no target they are the {@code k} most expensive ones, so a budget is just {@code maxPrice}.
+     */
+    public List<Bundle> searchBundles(String format, Double target, Double minPrice, Double maxPrice, int k) {
+        return searchBundles(format, target, minPrice, maxPrice, k, false);
+    }
+
+    public List<Bundle> searchBundles(String format, Double target, Double minPrice, Double maxPrice, int k,
+                                      boolean compactIds) {
+        if (k < 1) {
+            throw new BadRequestException("Invalid k: " + k);
+        }
+        if (target != null && (target.isNaN() || target.isInfinite() || target < 0)) {
+            throw new BadRequestException("Invalid target price: " + target);
+        }
+        List<String> typesInFormat = timedParseFormat(format);
+        List<Bundle> bundles;
+        if (target == null) {
+            bundles = metrics.timeBundle("combine", () -> streamBundles(typesInFormat, minPrice, maxPrice, null, compactIds)
+                    .limit(k)
+                    .collect(Collectors.toList()));
+        } else {
+            long targetCents = toCents(target, RoundingMode.HALF_UP);
+            long minCents = minPrice == null ? 0 : toCents(minPrice, RoundingMode.CEILING);
+            long maxCents = maxPrice == null ? Long.MAX_VALUE : toCents(maxPrice, RoundingMode.FLOOR);
+            LoadedColumns loaded = loadColumns(typesInFormat, compactIds);
+            bundles = metrics.timeBundle("combine", () -> BundleSearch.closest(loaded.columns(), targetCents, minCents, maxCents, k)
+                    .stream()
+                    .map(combination -> toBundle(loaded, combination))
+                    .collect(Collectors.toList()));
+        }
+        metrics.recordBundleCount(bundles.size());
+        return bundles;
+    }
+
+    private static BundleKey decodeCursor(String cursor, int typeCount) {
+        try {
+            BundleKey key = BundleCursor.decode(cursor);
+            if (key.ids().length != typeCount) {
+                throw new BadRequestException("Invalid cursor: It does not match the requested format");
+            }
+            return key;
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor: " + e.getMessage());
         }
-        return createBundles(typesInFormat, minPrice, maxPrice);
     }
 
     public List<Bundle> createBundles(List<String> typesInFormat, Double minPrice, Double maxPrice) {
-        List<Bundle> bundles = new ArrayList<>();
-        for (String type : typesInFormat) {
-            BigDecimal min = BigDecimal.valueOf(Optional.ofNullable(minPrice).orElse(0.0));
-            BigDecimal max = BigDecimal.valueOf(Optional.ofNullable(maxPrice).orElse(Double.MAX_VALUE));
-            List<Wood> woods = woodRepository.findByWoodType_TypeAndPriceBetween(type, min, max);
-            logger.info("Woods found for type '{}' between prices {} and {}: {}", type, min, max, woods);
-
-            if (!woods.isEmpty()) {
-                String bundleId = woods.stream()
-                        .map(wood -> wood.getWoodId().getId().toString())
-                        .collect(Collectors.joining("-"));
-                BigDecimal totalPrice = woods.stream()
-                        .map(Wood::getPrice)
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
-                bundles.add(new Bundle(bundleId, woods, totalPrice));
+        return createBundles(typesInFormat, minPrice, maxPrice, false);
+    }
+
+    List<Bundle> createBundles(List<String> typesInFormat, Double minPrice, Double maxPrice, boolean compactIds) {
+        return metrics.timeBundle("combine", () -> streamBundles(typesInFormat, minPrice, maxPrice, null, compactIds)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Lazily produces every bundle holding one wood per type (in format order) whose price is within the bounds,
+     * sorted by price descending and then by bundle id ascending.
+     */
+    public Stream<Bundle> streamBundles(List<String> typesInFormat, Double minPrice, Double maxPrice) {
+        return streamBundles(typesInFormat, minPrice, maxPrice, null, false);
+    }
+
+    Stream<Bundle> streamBundles(List<String> typesInFormat, Double minPrice, Double maxPrice, BundleKey after,
+                                 boolean compactIds) {
+        long minCents = minPrice == null ? 0 : toCents(minPrice, RoundingMode.CEILING);
+        long maxCents = maxPrice == null ? Long.MAX_VALUE : toCents(maxPrice, RoundingMode.FLOOR);
+        LoadedColumns loaded = loadColumns(typesInFormat, compactIds);
+
+        BundleEnumerator enumerator = new BundleEnumerator(loaded.columns(), minCents, maxCents, after);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(enumerator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .map(combination -> toBundle(loaded, combination));
+    }
+
+    /**
+     * Rebuilds the bundle behind a compact id, as long as none of its types has been re-priced since it was handed
+     * out; the returned bundle keeps the compact id.
+     */
+    public Bundle getBundle(String id) {
+        CompactBundleId.Parts parts;
+        try {
+            parts = CompactBundleId.decode(id);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid bundle id: " + e.getMessage());
+        }
+        List<PriceColumn> columns = new ArrayList<>(parts.types().length);
+        long generation = 0;
+        long cents = 0;
+        for (int j = 0; j < parts.types().length; j++) {
+            VersionedColumn versioned = priceIndex.versioned(parts.types()[j]).orElse(null);
+            int position = parts.positions()[j];
+            if (versioned == null || position < 0 || position >= versioned.column().size()) {
+                throw staleBundleId(id);
             }
+            columns.add(versioned.column());
+            generation += versioned.generation();
+            cents += versioned.column().centsAt(position);
         }
+        // Generations only grow, so an unchanged sum means none of the columns was republished
+        if (parts.epoch() != priceIndex.epoch() || parts.generation() != (int) generation) {
+            throw staleBundleId(id);
+        }
+        return toBundle(new LoadedColumns(columns, null), new Combination(parts.positions(), cents)).withId(id);
+    }
+
+    private static NotFoundException staleBundleId(String id) {
+        return new NotFoundException("Bundle " + id + " not found: its prices have changed since it was listed");
+    }
 
-        return bundles.stream()
-                .sorted(Comparator.comparing(Bundle::getPrice).reversed()
-                        .thenComparing(Bundle::getId))
-                .collect(Collectors.toList());
+    /**
+     * Counts the bundles {@link #getBundles} would return, straight from the per-type sorted prices.
+     */
+    public BundleCount countBundles(String format, Double minPrice, Double maxPrice) {
+        List<String> typesInFormat = timedParseFormat(format);
+        long minCents = minPrice == null ? 0 : toCents(minPrice, RoundingMode.CEILING);
+        long maxCents = maxPrice == null ? Long.MAX_VALUE : toCents(maxPrice, RoundingMode.FLOOR);
+        List<PriceColumn> columns = loadColumns(typesInFormat);
+        try {
+            return new BundleCount(BundleCounter.count(columns, minCents, maxCents));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+    }
+
+    // Columns to combine, plus what compact ids are built from when they are asked for
+    private record LoadedColumns(List<PriceColumn> columns, CompactIds compactIds) {
+    }
+
+    // The types' numbers and the sum of their generations, read together with the columns the positions refer to
+    private record CompactIds(int epoch, int generation, int[] ordinals) {
+
+        String encode(Combination combination) {
+            return CompactBundleId.encode(epoch, generation, ordinals, combination.positions());
+        }
+    }
+
+    private LoadedColumns loadColumns(List<String> typesInFormat, boolean compactIds) {
+        if (!compactIds) {
+            return new LoadedColumns(loadColumns(typesInFormat), null);
+        }
+        return metrics.timeBundle("fetch", () -> {
+            List<PriceColumn> columns = new ArrayList<>(typesInFormat.size());
+            int[] ordinals = new int[typesInFormat.size()];
+            long generation = 0;
+            for (int j = 0; j < ordinals.length; j++) {
+                VersionedColumn versioned = priceIndex.versioned(typesInFormat.get(j));
+                if (versioned.ordinal() < 0) {
+                    // Registered but not indexed yet, so the type has no number an id could carry
+                    throw new NotFoundException("No woods indexed for type " + typesInFormat.get(j));
+                }
+                columns.add(versioned.column());
+                ordinals[j] = versioned.ordinal();
+                generation += versioned.generation();
+            }
+            return new LoadedColumns(columns, new CompactIds(priceIndex.epoch(), (int) generation, ordinals));
+        });
+    }
+
+    // Reads the published index snapshot; the enumerator and counter prune prices above the cap themselves
+    private List<PriceColumn> loadColumns(List<String> typesInFormat) {
+        return metrics.timeBundle("fetch", () -> {
+            List<PriceColumn> columns = new ArrayList<>(typesInFormat.size());
+            for (String type : typesInFormat) {
+                PriceColumn column = priceIndex.column(type);
+                logger.debug("Woods indexed for type '{}': {}", type, column.size());
+                columns.add(column);
+            }
+            return columns;
+        });
+    }
+
+    private Bundle toBundle(LoadedColumns loaded, Combination combination) {
+        List<PriceColumn> columns = loaded.columns();
+        List<BundleWood> woods = new ArrayList<>(columns.size());
+        StringBuilder bundleId = new StringBuilder();
+        for (int j = 0; j < columns.size(); j++) {
+            PriceColumn column = columns.get(j);
+            int position = combination.positions()[j];
+            if (loaded.compactIds() == null) {
+                if (j > 0) {
+                    bundleId.append('-');
+                }
+                bundleId.append(column.idAt(position));
+            }
+            woods.add(new BundleWood(column.getType(), column.idAt(position), Cents.toPrice(column.centsAt(position))));
+        }
+        String id = loaded.compactIds() == null ? bundleId.toString() : loaded.compactIds().encode(combination);
+        return new Bundle(id, Collections.unmodifiableList(woods), Cents.toPrice(combination.cents()));
+    }
+
+    private static long toCents(Double price, RoundingMode roundingMode) {
+        if (price.isNaN() || price < 0) {
+            throw new BadRequestException("Invalid price bound: " + price);
+        }
+        if (price.isInfinite()) {
+            return Long.MAX_VALUE;
+        }
+        BigDecimal cents = BigDecimal.valueOf(price).setScale(2, roundingMode).movePointRight(2);
+        return cents.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) >= 0 ? Long.MAX_VALUE : cents.longValue();
     }
 
     Bundle createBundle(List<Wood> woods, String format) {
         String bundleId = createBundleId(woods, format);
-        BigDecimal totalPrice = woods.stream()
-                .map(Wood::getPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        long totalCents = 0;
+        List<BundleWood> bundleWoods = new ArrayList<>(woods.size());
+        for (Wood wood : woods) {
+            totalCents = Math.addExact(totalCents, Cents.of(wood.getPrice()));
+            bundleWoods.add(new BundleWood(wood.getWoodType().getType(), wood.getWoodId().getId(), wood.getPrice()));
+        }
 
-        Bundle bundle = new Bundle();
-        bundle.setId(bundleId);
-        bundle.setBundle(woods);
-        bundle.setPrice(totalPrice);
-        return bundle;
+        return new Bundle(bundleId, Collections.unmodifiableList(bundleWoods), Cents.toPrice(totalCents));
     }
 
     private String createBundleId(List<Wood> woods, String format) {
@@ -116,47 +567,96 @@ public class WoodService {
                 .collect(Collectors.joining("-"));
     }
     public List<Wood> parseWoodDataFromFile(String type, MultipartFile file) {
-        List<Wood> woods = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                // Check if line is a header
-                if (line.trim().toLowerCase().matches("id\\s+price")) {
-                    continue; // Skip header
-                }
-                String[] data = line.split("\\s+"); // Adjusted split regex for spaces/tabs
-                if (data.length >= 2) {
-                    Long id = Long.parseLong(data[0]);
-                    BigDecimal price = new BigDecimal(data[1].replace("$", ""));
-                    WoodType woodType = woodTypeRepository.findById(type)
-                            .orElseThrow(() -> new BadRequestException("Invalid wood type: " + type));
-                    WoodId woodId = new WoodId(type, id);
-                    Wood wood = new Wood(woodId, woodType, price);
-                    woods.add(wood);
-                }
+        WoodType woodType = typeRegistry.find(type)
+                .orElseThrow(() -> new BadRequestException("Invalid wood type: " + type));
+        return parseWoods(woodType, file, NO_PROGRESS);
+    }
+
+    // Malformed records surface as TdfParseException, a BadRequestException naming the line and column
+    private List<Wood> parseWoods(WoodType woodType, InputStreamSource source, LongConsumer rowsParsed) {
+        String type = woodType.getType();
+        return metrics.timeUpload("parse", type, () -> {
+            List<Wood> woods = new ArrayList<>();
+            try (InputStream in = source.getInputStream()) {
+                TdfParser.parse(in, (id, cents) -> {
+                    woods.add(new Wood(new WoodId(type, id), woodType, Cents.toPrice(cents)));
+                    if (woods.size() % PROGRESS_INTERVAL == 0) {
+                        rowsParsed.accept(woods.size());
+                    }
+                });
+            } catch (IOException e) {
+                throw new BadRequestException("Error reading file: " + e.getMessage());
             }
-        } catch (Exception e) {
-            throw new BadRequestException("Error parsing file: " + e.getMessage());
+            rowsParsed.accept(woods.size());
+            return woods;
+        });
+    }
+
+    // Spools the upload to a temp file so it can be split into byte ranges and parsed on every core
+    private ParsedRows parseInParallel(String type, MultipartFile file) {
+        Path spool = null;
+        try {
+            spool = Files.createTempFile("wood-upload-", ".tdf");
+            Timer.Sample receive = Timer.start();
+            file.transferTo(spool);
+            metrics.stopUpload(receive, "receive", type);
+            return parseInParallel(type, spool, NO_PROGRESS);
+        } catch (IOException e) {
+            throw new BadRequestException("Error reading file: " + e.getMessage());
+        } finally {
+            deleteSpool(spool);
+        }
+    }
+
+    // The ranges are parsed concurrently on the common pool, so progress is only reported once the whole file is in
+    private ParsedRows parseInParallel(String type, Path file, LongConsumer rowsParsed) throws IOException {
+        Timer.Sample parse = Timer.start();
+        ParsedRows rows = ParallelTdfParser.parse(file, ForkJoinPool.commonPool());
+        metrics.stopUpload(parse, "parse", type);
+        rowsParsed.accept(rows.size());
+        return rows;
+    }
+
+    private static void deleteSpool(Path spool) {
+        if (spool == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(spool);
+        } catch (IOException e) {
+            logger.warn("Could not delete upload spool file {}", spool, e);
         }
-        return woods;
+    }
+
+    private List<String> timedParseFormat(String format) {
+        return metrics.timeBundle("format", () -> parseFormat(format));
     }
 
     List<String> parseFormat(String format) {
-        Set<String> types = new HashSet<>(Arrays.asList(format.split(",")));
-        List<String> validTypes = types.stream()
-                .filter(type -> {
-                    boolean exists = woodTypeRepository.existsById(type);
-                    logger.info("Checking type '{}': exists = {}", type, exists);
-                    return exists;
-                })
-                .collect(Collectors.toList());
-        logger.info("Valid types after parsing format: {}", validTypes);
-        return validTypes;
+        if (format == null || format.isBlank()) {
+            throw new BadRequestException("Invalid format: No wood types given");
+        }
+        // Order matters: it is the order of woods within each bundle and of ids within the bundle id
+        Set<String> types = new LinkedHashSet<>();
+        for (String part : format.split(",")) {
+            String type = part.trim();
+            if (type.isEmpty()) {
+                throw new BadRequestException("Invalid format: Empty wood type in '" + format + "'");
+            }
+            if (!types.add(type)) {
+                throw new BadRequestException("Invalid format: Duplicate wood type " + type);
+            }
+            if (!typeRegistry.exists(type)) {
+                throw new BadRequestException("Invalid format: Unknown wood type " + type);
+            }
+        }
+        logger.debug("Valid types after parsing format: {}", types);
+        return new ArrayList<>(types);
     }
 
     boolean isBundleWithinPriceRange(Bundle bundle, Double minPrice, Double maxPrice) {
-        BigDecimal price = bundle.getPrice();
-        return (minPrice == null || price.compareTo(BigDecimal.valueOf(minPrice)) >= 0) &&
-                (maxPrice == null || price.compareTo(BigDecimal.valueOf(maxPrice)) <= 0);
+        long cents = Cents.of(bundle.getPrice());
+        return (minPrice == null || cents >= toCents(minPrice, RoundingMode.CEILING)) &&
+                (maxPrice == null || cents <= toCents(maxPrice, RoundingMode.FLOOR));
     }
 }
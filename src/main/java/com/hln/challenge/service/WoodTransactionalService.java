@@ -1,47 +1,304 @@
 package com.hln.challenge.service;
 
+import com.hln.challenge.config.UploadProperties;
+import com.hln.challenge.exception.BadRequestException;
 import com.hln.challenge.persistence.models.Wood;
 import com.hln.challenge.persistence.models.WoodId;
-import com.hln.challenge.persistence.repository.WoodRepository;
-import com.hln.challenge.persistence.repository.WoodTypeRepository;
+import com.hln.challenge.persistence.store.PriceSnapshot;
+import com.hln.challenge.persistence.store.UploadDigest;
+import com.hln.challenge.persistence.store.WoodStore;
+import com.hln.challenge.persistence.store.WoodStore.StagedUpload;
+import com.hln.challenge.service.bundle.Cents;
+import com.hln.challenge.service.dto.UploadResult;
+import com.hln.challenge.service.index.WoodTypeRegistry;
+import com.hln.challenge.service.metrics.WoodMetrics;
+import com.hln.challenge.service.parser.ParallelTdfParser.ParsedRows;
+import com.hln.challenge.service.parser.TdfParser;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 @Service
 public class WoodTransactionalService {
 
-    private final WoodRepository woodRepository;
-    private final WoodTypeRepository woodTypeRepository;
+    private static final Logger logger = LoggerFactory.getLogger(WoodTransactionalService.class);
 
-    public WoodTransactionalService(WoodRepository woodRepository, WoodTypeRepository woodTypeRepository) {
-        this.woodRepository = woodRepository;
-        this.woodTypeRepository = woodTypeRepository;
+    private final WoodStore woodStore;
+    private final WoodTypeRegistry typeRegistry;
+    private final UploadProperties uploadProperties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final WoodMetrics metrics;
+
+    public WoodTransactionalService(WoodStore woodStore, WoodTypeRegistry typeRegistry,
+                                    UploadProperties uploadProperties, ApplicationEventPublisher eventPublisher,
+                                    WoodMetrics metrics) {
+        this.woodStore = woodStore;
+        this.typeRegistry = typeRegistry;
+        this.uploadProperties = uploadProperties;
+        this.eventPublisher = eventPublisher;
+        this.metrics = metrics;
     }
 
+    /**
+     * Saves the valid woods whose id is new or whose price differs from the stored one, and returns every valid
+     * wood. The stored prices are read once per type, after the type is locked against other writers.
+     */
     @Transactional
     public List<Wood> validateAndSave(List<Wood> woods) {
         Set<Wood> validWoods = new HashSet<>();
+        Map<String, List<Wood>> byType = new TreeMap<>();
         for (Wood wood : woods) {
             if (isValidWood(wood)) {
                 validWoods.add(wood);
-                woodRepository.save(wood);
+                byType.computeIfAbsent(wood.getWoodType().getType(), key -> new ArrayList<>()).add(wood);
+            }
+        }
+        Map<String, List<Wood>> changed = new LinkedHashMap<>();
+        // Sorted, so two callers locking several types cannot deadlock
+        byType.forEach((type, typeWoods) -> {
+            typeRegistry.lockForWrite(type);
+            PriceSnapshot stored = woodStore.findPriceSnapshot(type);
+            for (Wood wood : typeWoods) {
+                if (stored.centsOf(wood.getWoodId().getId()) != Cents.of(wood.getPrice())) {
+                    changed.computeIfAbsent(type, key -> new ArrayList<>()).add(wood);
+                }
             }
+        });
+        changed.forEach(woodStore::merge);
+        Set<String> changedTypes = new HashSet<>(changed.keySet());
+        if (!changedTypes.isEmpty()) {
+            // The stored rows no longer match the last uploaded files of these types
+            woodStore.deleteUploadDigests(changedTypes);
+            // Listeners such as the price index pick this up once the transaction commits
+            eventPublisher.publishEvent(new WoodsChangedEvent(changedTypes));
         }
         return new ArrayList<>(validWoods);
     }
 
+    /**
+     * Bulk path for one uploaded file: validates the type once and every row up front, then writes only new and
+     * re-priced rows with batched MERGE statements. Any invalid row rejects the whole upload before anything is written.
+     * The file's {@code digest} is recorded with the rows, so the same file sent again can be skipped; null forgets
+     * the recorded one. The type stays locked from the diff until commit, so a concurrent upload of the same type
+     * diffs against these rows rather than the ones before them, and the digest never outlives a row it vouches for.
+     */
+    @Transactional
+    public UploadResult upsertAll(String type, List<Wood> woods, String digest) {
+        if (!typeRegistry.exists(type)) {
+            throw new BadRequestException("Invalid wood type: " + type);
+        }
+        Timer.Sample validate = Timer.start();
+        Map<Long, Wood> unique = validateRows(woods);
+        if (unique.isEmpty()) {
+            throw new BadRequestException("No valid wood data found for type: " + type);
+        }
+
+        typeRegistry.lockForWrite(type);
+        PriceSnapshot stored = woodStore.findPriceSnapshot(type);
+        List<Wood> changed = new ArrayList<>();
+        int inserted = 0;
+        int updated = 0;
+        for (Wood wood : unique.values()) {
+            long storedCents = stored.centsOf(wood.getWoodId().getId());
+            if (storedCents < 0) {
+                inserted++;
+                changed.add(wood);
+            } else if (storedCents != Cents.of(wood.getPrice())) {
+                updated++;
+                changed.add(wood);
+            }
+        }
+        int unchanged = unique.size() - changed.size();
+        metrics.stopUpload(validate, "validate", type);
+
+        if (!changed.isEmpty()) {
+            metrics.timeUpload("persist", type, () -> woodStore.merge(type, changed));
+            eventPublisher.publishEvent(new WoodsChangedEvent(Set.of(type)));
+        }
+        recordDigest(type, digest, unique.size());
+        logger.info("Upload for type '{}': {} inserted, {} updated, {} unchanged", type, inserted, updated, unchanged);
+        return new UploadResult(type, null, inserted, updated, unchanged);
+    }
+
+    /**
+     * Variant of {@link #upsertAll} for rows the parallel parser already holds as primitive arrays, sorted by id with
+     * every id once: they are diffed and merged as they are, without an entity or a {@code BigDecimal} per row. The
+     * changed rows are moved to the front of the arrays, which the caller must not use afterwards.
+     */
+    @Transactional
+    public UploadResult upsertParsed(String type, ParsedRows rows, String digest) {
+        if (!typeRegistry.exists(type)) {
+            throw new BadRequestException("Invalid wood type: " + type);
+        }
+        if (rows.size() == 0) {
+            throw new BadRequestException("No valid wood data found for type: " + type);
+        }
+        long[] ids = rows.ids();
+        long[] cents = rows.cents();
+        // Sorted, so the first id is the smallest
+        if (ids[0] <= 0) {
+            throw new BadRequestException("Invalid wood id: " + ids[0]);
+        }
+
+        typeRegistry.lockForWrite(type);
+        Timer.Sample validate = Timer.start();
+        PriceSnapshot stored = woodStore.findPriceSnapshot(type);
+        int changed = 0;
+        int inserted = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            long storedCents = stored.centsOf(ids[i]);
+            if (storedCents != cents[i]) {
+                if (storedCents < 0) {
+                    inserted++;
+                }
+                ids[changed] = ids[i];
+                cents[changed] = cents[i];
+                changed++;
+            }
+        }
+        int updated = changed - inserted;
+        int unchanged = rows.size() - changed;
+        metrics.stopUpload(validate, "validate", type);
+
+        if (changed > 0) {
+            int size = changed;
+            metrics.timeUpload("persist", type, () -> woodStore.merge(type, ids, cents, size));
+            eventPublisher.publishEvent(new WoodsChangedEvent(Set.of(type)));
+        }
+        recordDigest(type, digest, rows.size());
+        logger.info("Upload for type '{}': {} inserted, {} updated, {} unchanged", type, inserted, updated, unchanged);
+        return new UploadResult(type, null, inserted, updated, unchanged);
+    }
+
+    /**
+     * Streaming variant of {@link #upsertAll} for uploads too large to hold in memory. Records are parsed into
+     * fixed-size primitive chunks and staged by the store in a temporary file, where duplicate detection, the
+     * change counts and the final merge happen. The upload itself holds one chunk on the heap whatever the file
+     * size; the rows it writes end up wherever the store keeps its rows, which for in-memory H2 is the heap, and
+     * once per upload the store streams the type's stored rows by id. Nothing is visible to other readers
+     * until the upload commits, and any error discards the whole upload. Staged rows are private to the upload, so
+     * the type is only locked, like in {@link #upsertAll}, once parsing is done and before the counts are taken.
+     */
+    @Transactional
+    public UploadResult ingestChunked(String type, InputStream in, String digest) {
+        if (!typeRegistry.exists(type)) {
+            throw new BadRequestException("Invalid wood type: " + type);
+        }
+        int staged;
+        int inserted;
+        int updated;
+        try (StagedUpload upload = woodStore.stage(type)) {
+            ChunkStager stager = new ChunkStager(upload, uploadProperties.getChunkSize());
+            // Staging happens while parsing, so the parse stage includes the staging writes
+            Timer.Sample parse = Timer.start();
+            try {
+                TdfParser.parse(in, stager);
+            } catch (IOException e) {
+                throw new BadRequestException("Error reading file: " + e.getMessage());
+            }
+            stager.flush();
+            metrics.stopUpload(parse, "parse", type);
+
+            typeRegistry.lockForWrite(type);
+            Timer.Sample validate = Timer.start();
+            upload.findConflict().ifPresent(id -> {
+                throw new BadRequestException("Conflicting duplicate entries for wood id " + id);
+            });
+            staged = upload.count();
+            if (staged == 0) {
+                throw new BadRequestException("No valid wood data found for type: " + type);
+            }
+            inserted = upload.countInserts();
+            updated = upload.countUpdates();
+            metrics.stopUpload(validate, "validate", type);
+            if (inserted + updated > 0) {
+                metrics.timeUpload("persist", type, upload::merge);
+                eventPublisher.publishEvent(new WoodsChangedEvent(Set.of(type)));
+            }
+        }
+        recordDigest(type, digest, staged);
+
+        int unchanged = staged - inserted - updated;
+        logger.info("Streaming upload for type '{}': {} inserted, {} updated, {} unchanged", type, inserted, updated, unchanged);
+        return new UploadResult(type, null, inserted, updated, unchanged);
+    }
+
+    // Buffers parsed records in primitive arrays and stages them one full chunk at a time
+    private final class ChunkStager implements TdfParser.RowHandler {
+        private final StagedUpload upload;
+        private final long[] ids;
+        private final long[] cents;
+        private int size;
+
+        private ChunkStager(StagedUpload upload, int chunkSize) {
+            this.upload = upload;
+            this.ids = new long[chunkSize];
+            this.cents = new long[chunkSize];
+        }
+
+        @Override
+        public void row(long id, long price) {
+            ids[size] = id;
+            cents[size] = price;
+            if (++size == ids.length) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (size > 0) {
+                upload.stage(ids, cents, size);
+                size = 0;
+            }
+        }
+    }
+
+    private void recordDigest(String type, String digest, int rows) {
+        if (digest != null) {
+            woodStore.saveUploadDigest(type, new UploadDigest(digest, rows));
+        } else {
+            woodStore.deleteUploadDigests(Set.of(type));
+        }
+    }
+
+    // Identical duplicates collapse into one row; the same id with two prices is an error
+    private Map<Long, Wood> validateRows(List<Wood> woods) {
+        Map<Long, Wood> unique = new LinkedHashMap<>();
+        for (Wood wood : woods) {
+            WoodId woodId = wood.getWoodId();
+            if (woodId == null || woodId.getId() == null || woodId.getId() <= 0) {
+                throw new BadRequestException("Invalid wood id: " + (woodId == null ? null : woodId.getId()));
+            }
+            if (wood.getPrice() == null || wood.getPrice().signum() < 0) {
+                throw new BadRequestException("Invalid price for wood id " + woodId.getId() + ": " + wood.getPrice());
+            }
+            Wood previous = unique.putIfAbsent(woodId.getId(), wood);
+            if (previous != null && previous.getPrice().compareTo(wood.getPrice()) != 0) {
+                throw new BadRequestException("Conflicting duplicate entries for wood id " + woodId.getId());
+            }
+        }
+        return unique;
+    }
+
     boolean isValidWood(Wood wood) {
         WoodId woodId = wood.getWoodId();
         boolean isIdValid = woodId != null && woodId.getId() > 0;
-        boolean isPriceValid = wood.getPrice() != null && wood.getPrice().compareTo(BigDecimal.ZERO) >= 0;
+        boolean isPriceValid = wood.getPrice() != null && wood.getPrice().signum() >= 0;
         boolean isTypeValid = wood.getWoodType() != null &&
-                woodTypeRepository.existsById(wood.getWoodType().getType());
+                typeRegistry.exists(wood.getWoodType().getType());
 
         return isIdValid && isPriceValid && isTypeValid;
     }
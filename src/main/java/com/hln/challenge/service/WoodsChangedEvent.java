@@ -0,0 +1,10 @@
+package com.hln.challenge.service;
+
+import java.util.Set;
+
+/**
+ * Published inside the upload transaction for every wood type whose rows were written.
+ * Listeners that cache derived data should react after commit.
+ */
+public record WoodsChangedEvent(Set<String> types) {
+}
@@ -0,0 +1,113 @@
+package com.hln.challenge.service.bundle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Counts the combinations of one wood per column whose price falls in [minCents, maxCents] without enumerating them.
+ * <p>
+ * The columns are split into two halves, each half is expanded into its sorted list of partial sums, and the pairs of
+ * partial sums under a bound are counted with two pointers. A half made of a single column is just that column, so
+ * one or two types cost a sort of the inputs; more types cost a sort of roughly the square root of the cross product.
+ */
+public final class BundleCounter {
+
+    // Upper limit on the partial sums materialized for either half (8 bytes each)
+    static final int MAX_HALF_SUMS = 1 << 24;
+
+    private BundleCounter() {
+    }
+
+    /**
+     * @throws IllegalArgumentException when a half would need more than {@link #MAX_HALF_SUMS} partial sums
+     */
+    public static long count(List<PriceColumn> columns, long minCents, long maxCents) {
+        if (columns.isEmpty() || minCents > maxCents || columns.stream().anyMatch(PriceColumn::isEmpty)) {
+            return 0;
+        }
+        List<List<PriceColumn>> halves = split(columns);
+        // Prices are never negative, so partial sums above maxCents can be dropped up front
+        long[] left = partialSums(halves.get(0), maxCents);
+        long[] right = partialSums(halves.get(1), maxCents);
+
+        long count = countPairsAtMost(left, right, maxCents);
+        if (minCents > 0) {
+            count -= countPairsAtMost(left, right, minCents - 1);
+        }
+        return count;
+    }
+
+    /**
+     * Counts pairs (a, b) with a + b <= bound; both arrays must be sorted ascending.
+     */
+    static long countPairsAtMost(long[] a, long[] b, long bound) {
+        long count = 0;
+        int j = b.length - 1;
+        for (long value : a) {
+            while (j >= 0 && value + b[j] > bound) {
+                j--;
+            }
+            if (j < 0) {
+                break;
+            }
+            count += j + 1;
+        }
+        return count;
+    }
+
+    // Greedily balances the product of column sizes between the halves, largest columns first
+    private static List<List<PriceColumn>> split(List<PriceColumn> columns) {
+        List<PriceColumn> bySize = new ArrayList<>(columns);
+        bySize.sort(Comparator.comparingInt(PriceColumn::size).reversed());
+        List<PriceColumn> left = new ArrayList<>();
+        List<PriceColumn> right = new ArrayList<>();
+        double leftProduct = 1;
+        double rightProduct = 1;
+        for (PriceColumn column : bySize) {
+            if (leftProduct <= rightProduct) {
+                left.add(column);
+                leftProduct *= column.size();
+            } else {
+                right.add(column);
+                rightProduct *= column.size();
+            }
+        }
+        return List.of(left, right);
+    }
+
+    private static long[] partialSums(List<PriceColumn> half, long cap) {
+        long[] sums = {0};
+        for (PriceColumn column : half) {
+            long[] prices = ascending(column);
+            long[] next = new long[(int) Math.min(MAX_HALF_SUMS, Math.max(1L, (long) sums.length * prices.length) >>> 4) + 1];
+            int size = 0;
+            for (long sum : sums) {
+                for (long price : prices) {
+                    if (sum + price > cap) {
+                        break;
+                    }
+                    if (size == next.length) {
+                        if (size >= MAX_HALF_SUMS) {
+                            throw new IllegalArgumentException("Too many combinations to count; narrow the price range or the format");
+                        }
+                        next = Arrays.copyOf(next, Math.min(MAX_HALF_SUMS, size * 2));
+                    }
+                    next[size++] = sum + price;
+                }
+            }
+            sums = Arrays.copyOf(next, size);
+        }
+        Arrays.sort(sums);
+        return sums;
+    }
+
+    private static long[] ascending(PriceColumn column) {
+        long[] prices = new long[column.size()];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = column.centsAt(prices.length - 1 - i);
+        }
+        return prices;
+    }
+}
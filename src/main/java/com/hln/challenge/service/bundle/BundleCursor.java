@@ -0,0 +1,38 @@
+package com.hln.challenge.service.bundle;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque, URL-safe page token carrying the {@link BundleKey} of the last bundle a client has seen.
+ */
+public final class BundleCursor {
+
+    private static final char SEPARATOR = ':';
+
+    private BundleCursor() {
+    }
+
+    public static String encode(long cents, String bundleId) {
+        String raw = Long.toString(cents) + SEPARATOR + bundleId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @throws IllegalArgumentException when the token was not produced by {@link #encode}
+     */
+    public static BundleKey decode(String cursor) {
+        String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+        int separator = raw.indexOf(SEPARATOR);
+        if (separator <= 0 || separator == raw.length() - 1) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        long cents = Long.parseLong(raw.substring(0, separator));
+        String[] parts = raw.substring(separator + 1).split("-", -1);
+        long[] ids = new long[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            ids[i] = Long.parseLong(parts[i]);
+        }
+        return new BundleKey(cents, ids);
+    }
+}
@@ -0,0 +1,219 @@
+package com.hln.challenge.service.bundle;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Lazily walks the cross product of one wood per column, yielding combinations by price descending
+ * and then bundle id ascending, restricted to [minCents, maxCents].
+ * <p>
+ * Best-first search over position vectors: every vector has exactly one parent, obtained by stepping back
+ * its last advanced column, so each combination is reached once. Columns are price-sorted, so children never
+ * cost more than their parent and a max-heap of the frontier yields the global order. Subtrees whose cheapest
+ * reachable combination is still above the max, or whose root is already below the min, are never pushed,
+ * so memory is bounded by the frontier and not by the number of results.
+ * <p>
+ * Resuming after a {@link BundleKey} reuses the same pruning: the key's price becomes the max, and only the
+ * combinations sharing that exact price are compared against the key's ids. Partial combinations still above the
+ * max are expanded depth first on the spot instead of going through the heap, and the last column seeks straight
+ * to the max, so reaching the first result costs O(S + C log C): S partial combinations above the max whose
+ * subtree reaches below it, C the frontier that cut leaves. With two columns S is at most the size of the first
+ * column, whatever the page; with three or more it is bounded by the product of all but the last column's sizes
+ * and does grow with the depth of the page, as more prefixes straddle a lower cursor price.
+ */
+public class BundleEnumerator implements Iterator<Combination> {
+
+    private final PriceColumn[] columns;
+    private final long minCents;
+    private final long maxCents;
+    private final BundleKey after;
+    // First usable position of each column: woods priced above it cannot fit under the max with anything
+    private final int[] start;
+    // suffixHighest[j] / suffixLowest[j]: sum of the first usable / last price of columns j..n-1
+    private final long[] suffixHighest;
+    private final long[] suffixLowest;
+    private final PriorityQueue<Node> frontier;
+    // Children waiting to be sorted into the frontier or dropped; empty between calls
+    private final Deque<Node> offered = new ArrayDeque<>();
+    private int skipped;
+    private Node next;
+
+    public BundleEnumerator(List<PriceColumn> columns, long minCents, long maxCents) {
+        this(columns, minCents, maxCents, null);
+    }
+
+    /**
+     * Enumerates only the combinations that sort strictly after {@code after}, or all of them when it is null.
+     */
+    public BundleEnumerator(List<PriceColumn> columns, long minCents, long maxCents, BundleKey after) {
+        if (after != null && after.ids().length != columns.size()) {
+            throw new IllegalArgumentException("Key has " + after.ids().length + " ids but there are " + columns.size() + " columns");
+        }
+        this.columns = columns.toArray(new PriceColumn[0]);
+        this.minCents = minCents;
+        this.maxCents = after == null ? maxCents : Math.min(maxCents, after.cents());
+        this.after = after;
+        this.start = new int[this.columns.length];
+        this.suffixHighest = new long[this.columns.length + 1];
+        this.suffixLowest = new long[this.columns.length + 1];
+        this.frontier = new PriorityQueue<>(this::compare);
+
+        if (this.columns.length == 0 || columns.stream().anyMatch(PriceColumn::isEmpty)) {
+            return;
+        }
+        for (int j = this.columns.length - 1; j >= 0; j--) {
+            PriceColumn column = this.columns[j];
+            suffixLowest[j] = suffixLowest[j + 1] + column.centsAt(column.size() - 1);
+        }
+        for (int j = 0; j < this.columns.length; j++) {
+            PriceColumn column = this.columns[j];
+            long othersLowest = suffixLowest[0] - column.centsAt(column.size() - 1);
+            start[j] = column.firstAtMost(this.maxCents - othersLowest, 0);
+            if (start[j] == column.size()) {
+                return;
+            }
+        }
+        for (int j = this.columns.length - 1; j >= 0; j--) {
+            suffixHighest[j] = suffixHighest[j + 1] + this.columns[j].centsAt(start[j]);
+        }
+        offered.push(new Node(start.clone(), 0, suffixHighest[0]));
+        drainOffered();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = advance();
+        }
+        return next != null;
+    }
+
+    @Override
+    public Combination next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Node node = next;
+        next = null;
+        return new Combination(node.positions, node.cents);
+    }
+
+    /**
+     * Number of partial combinations currently waiting in the frontier.
+     */
+    public int frontierSize() {
+        return frontier.size();
+    }
+
+    /**
+     * Number of partial combinations above the max expanded so far to reach the ones under it.
+     */
+    public int skippedAboveMax() {
+        return skipped;
+    }
+
+    private Node advance() {
+        Node node;
+        while ((node = frontier.poll()) != null) {
+            expand(node);
+            drainOffered();
+            if (isAfterKey(node)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    // Offers every child of the node: one per column it may still advance
+    private void expand(Node node) {
+        for (int j = node.column; j < columns.length; j++) {
+            int position = node.positions[j] + 1;
+            if (position < columns[j].size()) {
+                int[] positions = node.positions.clone();
+                positions[j] = position;
+                long cents = node.cents - columns[j].centsAt(position - 1) + columns[j].centsAt(position);
+                offered.push(new Node(positions, j, cents));
+            }
+        }
+    }
+
+    // Moves the offered nodes under the max into the frontier. Those above it can never be yielded, so they are
+    // expanded here depth first rather than sorted through the heap; children never cost more than their parent,
+    // so everything in the frontier is under the max
+    private void drainOffered() {
+        int last = columns.length - 1;
+        Node node;
+        while ((node = offered.poll()) != null) {
+            if (node.column == last && node.cents > maxCents) {
+                // Only the last column can still move, so jump straight past every price that overshoots
+                PriceColumn column = columns[last];
+                long rest = node.cents - column.centsAt(node.positions[last]);
+                int position = column.firstAtMost(maxCents - rest, node.positions[last]);
+                if (position == column.size()) {
+                    continue;
+                }
+                node.positions[last] = position;
+                node.cents = rest + column.centsAt(position);
+            }
+            if (node.cents < minCents || lowestReachable(node) > maxCents) {
+                continue;
+            }
+            if (node.cents > maxCents) {
+                skipped++;
+                expand(node);
+            } else {
+                frontier.add(node);
+            }
+        }
+    }
+
+    private boolean isAfterKey(Node node) {
+        if (after == null || node.cents != after.cents()) {
+            return true;
+        }
+        for (int j = 0; j < columns.length; j++) {
+            int byId = PriceColumn.compareIds(columns[j].idAt(node.positions[j]), after.ids()[j]);
+            if (byId != 0) {
+                return byId > 0;
+            }
+        }
+        return false;
+    }
+
+    private long lowestReachable(Node node) {
+        int j = node.column;
+        long fixed = node.cents - columns[j].centsAt(node.positions[j]) - suffixHighest[j + 1];
+        return fixed + suffixLowest[j];
+    }
+
+    private int compare(Node a, Node b) {
+        int byPrice = Long.compare(b.cents, a.cents);
+        if (byPrice != 0) {
+            return byPrice;
+        }
+        for (int j = 0; j < columns.length; j++) {
+            int byId = Integer.compare(columns[j].idRankAt(a.positions[j]), columns[j].idRankAt(b.positions[j]));
+            if (byId != 0) {
+                return byId;
+            }
+        }
+        return 0;
+    }
+
+    private static final class Node {
+        private final int[] positions;
+        // Lowest column this node may still advance; columns after it are all at their start position
+        private final int column;
+        private long cents;
+
+        private Node(int[] positions, int column, long cents) {
+            this.positions = positions;
+            this.column = column;
+            this.cents = cents;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.hln.challenge.service.bundle;
+
+/**
+ * Sort key of a bundle: its price in cents and the wood ids in format order, which together spell the bundle id.
+ */
+public record BundleKey(long cents, long[] ids) {
+}
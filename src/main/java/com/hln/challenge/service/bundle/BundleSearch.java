@@ -0,0 +1,87 @@
+package com.hln.challenge.service.bundle;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Finds the {@code k} combinations whose price is closest to a target, within [minCents, maxCents].
+ * <p>
+ * Two best-first walks start at the target and move away from it: a {@link BundleEnumerator} over the columns
+ * yields the combinations at or below the target by price descending, and another over the mirrored columns
+ * (each price replaced by the column's highest price minus it) yields those above it by price ascending. Merging
+ * the two by distance stops after {@code k} results, so the work grows with {@code k} and the frontier, not with
+ * the cross product.
+ * <p>
+ * Results are ordered by distance to the target, the cheaper bundle first on a tie, then by bundle id.
+ */
+public final class BundleSearch {
+
+    private BundleSearch() {
+    }
+
+    public static List<Combination> closest(List<PriceColumn> columns, long targetCents, long minCents, long maxCents,
+                                            int k) {
+        List<Combination> closest = new ArrayList<>();
+        if (columns.isEmpty() || columns.stream().anyMatch(PriceColumn::isEmpty)) {
+            return closest;
+        }
+        List<PriceColumn> mirrored = new ArrayList<>(columns.size());
+        int[][] origins = new int[columns.size()][];
+        long highest = 0;
+        for (int j = 0; j < columns.size(); j++) {
+            origins[j] = new int[columns.get(j).size()];
+            mirrored.add(mirror(columns.get(j), origins[j]));
+            highest += columns.get(j).centsAt(0);
+        }
+
+        Iterator<Combination> below = new BundleEnumerator(columns, minCents, Math.min(maxCents, targetCents));
+        // A mirrored price m stands for highest - m, so the range [from, max] above the target becomes
+        // [highest - max, highest - from]
+        long from = targetCents >= highest ? highest + 1 : Math.max(targetCents + 1, minCents);
+        Iterator<Combination> above = from > highest ? null
+                : new BundleEnumerator(mirrored, Math.max(0, highest - maxCents), highest - from);
+        Combination nextBelow = below.hasNext() ? below.next() : null;
+        Combination nextAbove = above != null && above.hasNext() ? unmirror(above.next(), origins, highest) : null;
+        while (closest.size() < k && (nextBelow != null || nextAbove != null)) {
+            if (nextAbove == null || nextBelow != null
+                    && targetCents - nextBelow.cents() <= nextAbove.cents() - targetCents) {
+                closest.add(nextBelow);
+                nextBelow = below.hasNext() ? below.next() : null;
+            } else {
+                closest.add(nextAbove);
+                nextAbove = above.hasNext() ? unmirror(above.next(), origins, highest) : null;
+            }
+        }
+        return closest;
+    }
+
+    // Highest price minus each price, in the column's order reversed except that equal prices keep their id order
+    private static PriceColumn mirror(PriceColumn column, int[] origin) {
+        int size = column.size();
+        long highest = column.centsAt(0);
+        long[] ids = new long[size];
+        long[] cents = new long[size];
+        int[] idRank = new int[size];
+        int position = 0;
+        for (int end = size; end > 0; ) {
+            int runStart = column.firstAtMost(column.centsAt(end - 1), 0);
+            for (int i = runStart; i < end; i++, position++) {
+                origin[position] = i;
+                ids[position] = column.idAt(i);
+                cents[position] = highest - column.centsAt(i);
+                idRank[position] = column.idRankAt(i);
+            }
+            end = runStart;
+        }
+        return new PriceColumn(column.getType(), ids, cents, idRank);
+    }
+
+    private static Combination unmirror(Combination combination, int[][] origins, long highest) {
+        int[] positions = new int[origins.length];
+        for (int j = 0; j < positions.length; j++) {
+            positions[j] = origins[j][combination.positions()[j]];
+        }
+        return new Combination(positions, highest - combination.cents());
+    }
+}
@@ -0,0 +1,22 @@
+package com.hln.challenge.service.bundle;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Prices are compared and summed as {@code long} cents; these convert to and from the two-decimal
+ * {@link BigDecimal} of the entities and the JSON output, at the edges only.
+ */
+public final class Cents {
+
+    private Cents() {
+    }
+
+    public static long of(BigDecimal price) {
+        return price.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    public static BigDecimal toPrice(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+}
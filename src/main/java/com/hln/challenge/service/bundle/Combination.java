@@ -0,0 +1,7 @@
+package com.hln.challenge.service.bundle;
+
+/**
+ * One wood per type, identified by its position in each {@link PriceColumn}, plus the summed price in cents.
+ */
+public record Combination(int[] positions, long cents) {
+}
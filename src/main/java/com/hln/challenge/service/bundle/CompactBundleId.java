@@ -0,0 +1,65 @@
+package com.hln.challenge.service.bundle;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Fixed-width, URL-safe bundle id: the dataset generation the bundle was combined at, then the number of each wood's
+ * type and the wood's position in that type's {@link PriceColumn}. It takes six bytes per type whatever the wood ids,
+ * and is only meaningful against the columns of that generation.
+ */
+public final class CompactBundleId {
+
+    private static final byte VERSION = 1;
+    private static final int HEADER_BYTES = 9;
+    private static final int TYPE_BYTES = 6;
+    private static final int MAX_TYPE = 0xFFFF;
+
+    /**
+     * A decoded id: the index epoch and generation it was encoded at, and per wood its type number and position.
+     */
+    public record Parts(int epoch, int generation, int[] types, int[] positions) {
+    }
+
+    private CompactBundleId() {
+    }
+
+    /**
+     * @throws IllegalArgumentException when a type number does not fit in the id's two bytes
+     */
+    public static String encode(int epoch, int generation, int[] types, int[] positions) {
+        for (int type : types) {
+            if (type < 0 || type > MAX_TYPE) {
+                throw new IllegalArgumentException("Type number out of range: " + type);
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + TYPE_BYTES * types.length)
+                .put(VERSION)
+                .putInt(epoch)
+                .putInt(generation);
+        for (int j = 0; j < types.length; j++) {
+            buffer.putShort((short) types[j]).putInt(positions[j]);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * @throws IllegalArgumentException when the id was not produced by {@link #encode}
+     */
+    public static Parts decode(String id) {
+        ByteBuffer buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(id));
+        int types = (buffer.remaining() - HEADER_BYTES) / TYPE_BYTES;
+        if (types < 1 || buffer.remaining() != HEADER_BYTES + TYPE_BYTES * types) {
+            throw new IllegalArgumentException("Malformed compact bundle id");
+        }
+        if (buffer.get() != VERSION) {
+            throw new IllegalArgumentException("Unsupported compact bundle id version");
+        }
+        Parts parts = new Parts(buffer.getInt(), buffer.getInt(), new int[types], new int[types]);
+        for (int j = 0; j < types; j++) {
+            parts.types()[j] = Short.toUnsignedInt(buffer.getShort());
+            parts.positions()[j] = buffer.getInt();
+        }
+        return parts;
+    }
+}
@@ -0,0 +1,207 @@
+package com.hln.challenge.service.bundle;
+
+import java.util.Arrays;
+
+/**
+ * Immutable, price-sorted view of every wood of one type.
+ * Entries are ordered by price descending and then by the decimal text of the id ascending,
+ * which is the order bundles are emitted in, so walking a column forward never increases a bundle's price.
+ */
+public final class PriceColumn {
+
+    // Prices up to this many cents, the most NUMERIC(10,2) holds, fit a sort key with the id rank below them
+    private static final long MAX_KEY_CENTS = 9_999_999_999L;
+    // Low bits of a sort key holding the id rank; the inverted cents fill the 34 bits above
+    private static final int RANK_BITS = 29;
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private final String type;
+    private final long[] ids;
+    private final long[] cents;
+    // Position of each entry's id when all ids of the column are compared as strings
+    private final int[] idRank;
+
+    // For arrays already in column order whose id ranks are known
+    PriceColumn(String type, long[] ids, long[] cents, int[] idRank) {
+        this.type = type;
+        this.ids = ids;
+        this.cents = cents;
+        this.idRank = idRank;
+    }
+
+    /**
+     * Builds a column from unsorted parallel arrays; the arrays are not modified.
+     */
+    public static PriceColumn of(String type, long[] ids, long[] cents) {
+        if (ids.length != cents.length) {
+            throw new IllegalArgumentException("ids and cents must have the same length");
+        }
+        int n = ids.length;
+        // Input positions in id order, computed once; a position's rank then breaks price ties
+        int[] byId = sortPositions(n, (a, b) -> compareIds(ids[a], ids[b]));
+        int[] rank = new int[n];
+        for (int r = 0; r < n; r++) {
+            rank[byId[r]] = r;
+        }
+        int[] order = fitsSortKeys(cents) ? sortByKeys(cents, rank, byId)
+                : sortPositions(n, (a, b) -> cents[a] != cents[b]
+                        ? Long.compare(cents[b], cents[a]) : Integer.compare(rank[a], rank[b]));
+        long[] sortedIds = new long[n];
+        long[] sortedCents = new long[n];
+        int[] sortedRank = new int[n];
+        for (int i = 0; i < n; i++) {
+            sortedIds[i] = ids[order[i]];
+            sortedCents[i] = cents[order[i]];
+            sortedRank[i] = rank[order[i]];
+        }
+        return new PriceColumn(type, sortedIds, sortedCents, sortedRank);
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public boolean isEmpty() {
+        return ids.length == 0;
+    }
+
+    public long idAt(int position) {
+        return ids[position];
+    }
+
+    public long centsAt(int position) {
+        return cents[position];
+    }
+
+    int idRankAt(int position) {
+        return idRank[position];
+    }
+
+    /**
+     * Returns the first position at or after {@code from} whose price is at most {@code maxCents},
+     * or {@link #size()} when there is none.
+     */
+    public int firstAtMost(long maxCents, int from) {
+        int low = from;
+        int high = ids.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cents[mid] <= maxCents) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compares two ids the way their decimal strings compare, without building the strings.
+     * Bundle ids are hyphen-joined wood ids, so this is the per-type component of the bundle id order.
+     */
+    public static int compareIds(long a, long b) {
+        if (a == b) {
+            return 0;
+        }
+        if (a < 0 || b < 0) {
+            return Long.toString(a).compareTo(Long.toString(b));
+        }
+        int digitsA = digits(a);
+        int digitsB = digits(b);
+        int common = Math.min(digitsA, digitsB);
+        long prefixA = a / pow10(digitsA - common);
+        long prefixB = b / pow10(digitsB - common);
+        if (prefixA != prefixB) {
+            return Long.compare(prefixA, prefixB);
+        }
+        return Integer.compare(digitsA, digitsB);
+    }
+
+    private static boolean fitsSortKeys(long[] cents) {
+        if (cents.length >= 1 << RANK_BITS) {
+            return false;
+        }
+        for (long price : cents) {
+            if (price < 0 || price > MAX_KEY_CENTS) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Column order as primitive keys of inverted cents and id rank, the way the log store sorts by price
+    private static int[] sortByKeys(long[] cents, int[] rank, int[] byId) {
+        long[] keys = new long[cents.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (MAX_KEY_CENTS - cents[i]) << RANK_BITS | rank[i];
+        }
+        Arrays.parallelSort(keys);
+        int[] order = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            order[i] = byId[(int) (keys[i] & ((1 << RANK_BITS) - 1))];
+        }
+        return order;
+    }
+
+    // Positions 0..n-1 merge sorted by the given order, on primitive arrays
+    private static int[] sortPositions(int n, PositionOrder order) {
+        int[] positions = new int[n];
+        for (int i = 0; i < n; i++) {
+            positions[i] = i;
+        }
+        mergeSort(positions, positions.clone(), 0, n, order);
+        return positions;
+    }
+
+    // Sorts positions[low, high) using scratch, which holds the same values on entry
+    private static void mergeSort(int[] positions, int[] scratch, int low, int high, PositionOrder order) {
+        if (high - low < INSERTION_SORT_THRESHOLD) {
+            for (int i = low + 1; i < high; i++) {
+                int position = positions[i];
+                int j = i;
+                for (; j > low && order.compare(positions[j - 1], position) > 0; j--) {
+                    positions[j] = positions[j - 1];
+                }
+                positions[j] = position;
+            }
+            return;
+        }
+        int middle = (low + high) >>> 1;
+        // Halves are sorted into scratch and merged back, alternating roles to avoid copying
+        mergeSort(scratch, positions, low, middle, order);
+        mergeSort(scratch, positions, middle, high, order);
+        for (int i = low, left = low, right = middle; i < high; i++) {
+            if (right >= high || (left < middle && order.compare(scratch[left], scratch[right]) <= 0)) {
+                positions[i] = scratch[left++];
+            } else {
+                positions[i] = scratch[right++];
+            }
+        }
+    }
+
+    private static int digits(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private static long pow10(int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 10;
+        }
+        return result;
+    }
+
+    @FunctionalInterface
+    private interface PositionOrder {
+        int compare(int a, int b);
+    }
+}
@@ -0,0 +1,155 @@
+package com.hln.challenge.service.cache;
+
+import com.hln.challenge.config.BundleCacheProperties;
+import com.hln.challenge.service.dto.Bundle;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Least-recently-used cache of bundle lists, bounded both by entries and by the total number of bundles held.
+ * <p>
+ * Each entry is stamped with the price index generation of every type it was computed from, and a lookup only
+ * hits when all of them are still current, so an upload makes the results it affects unreachable as soon as it
+ * commits. Stale entries are dropped on their next lookup or pushed out by the LRU order.
+ * <p>
+ * Stats follow Micrometer's cache conventions, tagged {@code cache=bundles}: {@code cache.gets} (result = hit,
+ * miss), {@code cache.evictions}, {@code cache.size} and {@code cache.weight} (bundles held).
+ */
+@Component
+public class BundleResultCache {
+
+    /**
+     * Types in format order, which is also the order of woods within each bundle, the bounds in cents, and whether
+     * the bundles carry compact ids.
+     */
+    public record Key(List<String> types, long minCents, long maxCents, boolean compactIds) {
+
+        public Key {
+            types = List.copyOf(types);
+        }
+
+        public Key(List<String> types, long minCents, long maxCents) {
+            this(types, minCents, maxCents, false);
+        }
+    }
+
+    /**
+     * Point-in-time counters, mainly for tests and logging.
+     */
+    public record Stats(long hits, long misses, long evictions, int size, long weight) {
+    }
+
+    private record Entry(long[] generations, List<Bundle> bundles) {
+    }
+
+    private final int maxEntries;
+    private final long maxBundles;
+    // Access order, so iteration starts at the least recently used entry
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public BundleResultCache(BundleCacheProperties properties, MeterRegistry registry) {
+        this.maxEntries = properties.getMaxEntries();
+        this.maxBundles = properties.getMaxBundles();
+        FunctionCounter.builder("cache.gets", hits, AtomicLong::get)
+                .tag("cache", "bundles").tag("result", "hit")
+                .description("Bundle lookups served from the cache")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", misses, AtomicLong::get)
+                .tag("cache", "bundles").tag("result", "miss")
+                .description("Bundle lookups that had to combine the prices")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", evictions, AtomicLong::get)
+                .tag("cache", "bundles")
+                .description("Bundle lists evicted to stay within the bounds")
+                .register(registry);
+        Gauge.builder("cache.size", this, cache -> cache.stats().size())
+                .tag("cache", "bundles")
+                .description("Bundle lists held")
+                .register(registry);
+        Gauge.builder("cache.weight", this, cache -> cache.stats().weight())
+                .tag("cache", "bundles")
+                .description("Bundles held over all lists")
+                .baseUnit("bundles")
+                .register(registry);
+    }
+
+    /**
+     * Returns the cached bundles for {@code key} when they were computed at {@code generations}, else loads and
+     * caches them. The generations must be read before the prices the loader combines. The returned list is
+     * shared and unmodifiable.
+     */
+    public List<Bundle> get(Key key, long[] generations, Supplier<List<Bundle>> loader) {
+        List<Bundle> cached = lookup(key, generations);
+        if (cached != null) {
+            return cached;
+        }
+        // Computed outside the lock, so a slow combination never blocks the hits of other requests
+        List<Bundle> bundles = List.copyOf(loader.get());
+        store(key, generations.clone(), bundles);
+        return bundles;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits.get(), misses.get(), evictions.get(), entries.size(), weight);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    private synchronized List<Bundle> lookup(Key key, long[] generations) {
+        Entry entry = entries.get(key);
+        if (entry != null && Arrays.equals(entry.generations(), generations)) {
+            hits.incrementAndGet();
+            return entry.bundles();
+        }
+        if (entry != null) {
+            remove(key, entry);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    private synchronized void store(Key key, long[] generations, List<Bundle> bundles) {
+        long entryWeight = weigh(bundles);
+        if (maxEntries < 1 || entryWeight > maxBundles) {
+            return;
+        }
+        Entry previous = entries.put(key, new Entry(generations, bundles));
+        if (previous != null) {
+            weight -= weigh(previous.bundles());
+        }
+        weight += entryWeight;
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries || weight > maxBundles) {
+            weight -= weigh(eldest.next().getValue().bundles());
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void remove(Key key, Entry entry) {
+        entries.remove(key);
+        weight -= weigh(entry.bundles());
+    }
+
+    // Empty results still cost an entry
+    private static long weigh(List<Bundle> bundles) {
+        return Math.max(1, bundles.size());
+    }
+}
@@ -0,0 +1,15 @@
+package com.hln.challenge.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkUploadResult {
+    private List<TypeUploadResult> results;
+    private long durationMillis;
+}
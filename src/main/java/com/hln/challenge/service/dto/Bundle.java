@@ -1,21 +1,22 @@
 package com.hln.challenge.service.dto;
 
-import com.hln.challenge.persistence.models.Wood;
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Value;
+import lombok.With;
 
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Objects;
 
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
+/**
+ * A bundle as returned to clients. Immutable, since cached lists hand the same instances to every request; use
+ * {@link #withId} for a copy under another id.
+ */
+@Value
 public class Bundle {
-    private String id;
-    private List<Wood> bundle;
-    private BigDecimal price;
+    @With
+    String id;
+    List<BundleWood> bundle;
+    BigDecimal price;
 
     @Override
     public boolean equals(Object o) {
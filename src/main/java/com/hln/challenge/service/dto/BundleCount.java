@@ -0,0 +1,12 @@
+package com.hln.challenge.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BundleCount {
+    private long total;
+}
@@ -0,0 +1,18 @@
+package com.hln.challenge.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BundlePage {
+    private List<Bundle> bundles;
+    // Number of bundles in this page
+    private int total;
+    // Pass back as the cursor parameter to fetch the next page; null on the last page
+    private String nextCursor;
+}
@@ -0,0 +1,15 @@
+package com.hln.challenge.service.dto;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * One wood of a bundle, in the README's {@code {type, id, price}} shape.
+ */
+@Value
+public class BundleWood {
+    String type;
+    long id;
+    BigDecimal price;
+}
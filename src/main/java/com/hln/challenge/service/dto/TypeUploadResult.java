@@ -0,0 +1,28 @@
+package com.hln.challenge.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TypeUploadResult {
+    private String type;
+    private boolean success;
+    // Why the type was rejected; null when it succeeded
+    private String error;
+    private int inserted;
+    private int updated;
+    private int unchanged;
+    private long durationMillis;
+
+    public static TypeUploadResult succeeded(UploadResult result, long durationMillis) {
+        return new TypeUploadResult(result.getType(), true, null,
+                result.getInserted(), result.getUpdated(), result.getUnchanged(), durationMillis);
+    }
+
+    public static TypeUploadResult failed(String type, String error, long durationMillis) {
+        return new TypeUploadResult(type, false, error, 0, 0, 0, durationMillis);
+    }
+}
@@ -0,0 +1,26 @@
+package com.hln.challenge.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UploadJobStatus {
+
+    public enum State {
+        QUEUED, RUNNING, SUCCEEDED, FAILED
+    }
+
+    private String id;
+    private String type;
+    private State state;
+    // Rows parsed so far; the final count once parsing is done
+    private long rowsParsed;
+    private int inserted;
+    private int updated;
+    private int unchanged;
+    // Why the upload was rejected; null unless it failed
+    private String error;
+}
@@ -0,0 +1,20 @@
+package com.hln.challenge.service.dto;
+
+import com.hln.challenge.persistence.projections.WoodPrice;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UploadResult {
+    private String type;
+    // Every stored wood of the type after the upload; null when the caller only needs the counts
+    private List<WoodPrice> woods;
+    private int inserted;
+    private int updated;
+    private int unchanged;
+}
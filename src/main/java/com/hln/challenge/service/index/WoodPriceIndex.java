@@ -0,0 +1,186 @@
+package com.hln.challenge.service.index;
+
+import com.hln.challenge.persistence.store.WoodStore;
+import com.hln.challenge.service.WoodsChangedEvent;
+import com.hln.challenge.service.bundle.PriceColumn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Read-side copy of every wood price, held as one {@link PriceColumn} per wood type.
+ * <p>
+ * The whole map is replaced on every change (copy-on-write), so bundle requests read a consistent snapshot
+ * without locking and never wait for an upload; only writers serialize on this index.
+ * <p>
+ * Every republished column bumps its type's generation, so anything derived from a column can tell whether it is
+ * still current by comparing the generation it was computed at. Columns, generations and type numbers are published
+ * together as one snapshot.
+ */
+@Component
+public class WoodPriceIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(WoodPriceIndex.class);
+
+    /**
+     * A type's column read together with the generation it was published at and the type's number in this index.
+     */
+    public record VersionedColumn(PriceColumn column, long generation, int ordinal) {
+    }
+
+    // Types are numbered in the order they were first published and keep their number for the life of the index
+    private record Snapshot(Map<String, PriceColumn> columns, Map<String, Long> generations, List<String> ordinals) {
+    }
+
+    private final WoodStore woodStore;
+    // Tells this run's generations from those of an earlier run, which restart from zero
+    private final int epoch = ThreadLocalRandom.current().nextInt();
+
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), Map.of(), List.of());
+
+    public WoodPriceIndex(WoodStore woodStore) {
+        this.woodStore = woodStore;
+    }
+
+    /**
+     * Returns the current column for {@code type}, or an empty one when the type has no woods.
+     */
+    public PriceColumn column(String type) {
+        return column(snapshot, type);
+    }
+
+    /**
+     * Returns how many times the column of {@code type} has been republished. Read it before the column, so
+     * seeing a generation means seeing at least that column.
+     */
+    public long generation(String type) {
+        return snapshot.generations().getOrDefault(type, 0L);
+    }
+
+    /**
+     * Returns the column of {@code type} and its generation from the same snapshot. A type the index has never
+     * published has an empty column and ordinal {@code -1}.
+     */
+    public VersionedColumn versioned(String type) {
+        Snapshot current = snapshot;
+        return new VersionedColumn(column(current, type), current.generations().getOrDefault(type, 0L),
+                current.ordinals().indexOf(type));
+    }
+
+    /**
+     * Returns the column of the type numbered {@code ordinal}, if any type has that number.
+     */
+    public Optional<VersionedColumn> versioned(int ordinal) {
+        Snapshot current = snapshot;
+        if (ordinal < 0 || ordinal >= current.ordinals().size()) {
+            return Optional.empty();
+        }
+        String type = current.ordinals().get(ordinal);
+        return Optional.of(new VersionedColumn(column(current, type), current.generations().getOrDefault(type, 0L),
+                ordinal));
+    }
+
+    public int epoch() {
+        return epoch;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        Map<String, PriceColumn> rebuilt = load(woodStore.findAllTypes());
+        Set<String> changed = new HashSet<>(snapshot.columns().keySet());
+        changed.addAll(rebuilt.keySet());
+        publish(rebuilt, changed);
+        logger.info("Price index built for types: {}", rebuilt.keySet());
+    }
+
+    // Runs once the upload has committed, so the reload sees the new rows
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onWoodsChanged(WoodsChangedEvent event) {
+        refresh(event.types());
+    }
+
+    public synchronized void refresh(Collection<String> types) {
+        Map<String, PriceColumn> refreshed = new HashMap<>(snapshot.columns());
+        refreshed.putAll(load(types));
+        publish(refreshed, types);
+        logger.info("Price index refreshed for types: {}", types);
+    }
+
+    private void publish(Map<String, PriceColumn> columns, Collection<String> changed) {
+        Map<String, Long> bumped = new HashMap<>(snapshot.generations());
+        List<String> ordinals = new ArrayList<>(snapshot.ordinals());
+        for (String type : changed) {
+            bumped.merge(type, 1L, Long::sum);
+            if (!ordinals.contains(type)) {
+                ordinals.add(type);
+            }
+        }
+        snapshot = new Snapshot(Map.copyOf(columns), Map.copyOf(bumped), List.copyOf(ordinals));
+    }
+
+    private static PriceColumn column(Snapshot snapshot, String type) {
+        PriceColumn column = snapshot.columns().get(type);
+        return column != null ? column : PriceColumn.of(type, new long[0], new long[0]);
+    }
+
+    // One streamed read for all the types; rows arrive grouped by type as primitive cents, so a column ends where
+    // the next type starts and no row is ever held as an object
+    private Map<String, PriceColumn> load(Collection<String> types) {
+        Map<String, PriceColumn> loaded = new HashMap<>();
+        if (types.isEmpty()) {
+            return loaded;
+        }
+        ColumnBuilder builder = new ColumnBuilder();
+        woodStore.forEachByTypesSorted(types, (type, id, cents) -> {
+            if (!type.equals(builder.type)) {
+                builder.finish(loaded);
+                builder.type = type;
+            }
+            builder.add(id, cents);
+        });
+        builder.finish(loaded);
+        for (String type : types) {
+            loaded.putIfAbsent(type, PriceColumn.of(type, new long[0], new long[0]));
+        }
+        return loaded;
+    }
+
+    // Growable parallel arrays for the type being read
+    private static final class ColumnBuilder {
+        private String type;
+        private long[] ids = new long[64];
+        private long[] cents = new long[64];
+        private int size;
+
+        private void add(long id, long price) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                cents = Arrays.copyOf(cents, size * 2);
+            }
+            ids[size] = id;
+            cents[size] = price;
+            size++;
+        }
+
+        private void finish(Map<String, PriceColumn> loaded) {
+            if (type != null) {
+                loaded.put(type, PriceColumn.of(type, Arrays.copyOf(ids, size), Arrays.copyOf(cents, size)));
+            }
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.hln.challenge.service.index;
+
+import com.hln.challenge.persistence.models.WoodType;
+import com.hln.challenge.persistence.repository.WoodTypeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory copy of the wood types, so validating a type is a map lookup instead of a query.
+ * <p>
+ * Preloaded at startup by {@code WoodTypeDataLoader} and updated when an upload creates a type. Like
+ * {@link WoodPriceIndex} the map is copy-on-write, so readers never lock. A type missing from the map is looked up
+ * once in the database, which picks up types inserted outside the application; a type found missing there is
+ * remembered as unknown until it is created or the registry is reloaded, so unknown types cost no query either.
+ * <p>
+ * Writers take a {@link ReentrantLock} rather than {@code synchronized}, so a request thread waiting on the database
+ * while holding it does not pin its virtual thread's carrier.
+ */
+@Component
+public class WoodTypeRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(WoodTypeRegistry.class);
+
+    // Bounds the memory requests for made-up types can take; the set starts over once full
+    private static final int MAX_UNKNOWN_TYPES = 10_000;
+
+    private final WoodTypeRepository woodTypeRepository;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Set<String> unknownTypes = ConcurrentHashMap.newKeySet();
+
+    private volatile Map<String, WoodType> types = Map.of();
+
+    public WoodTypeRegistry(WoodTypeRepository woodTypeRepository) {
+        this.woodTypeRepository = woodTypeRepository;
+    }
+
+    public void reload() {
+        lock.lock();
+        try {
+            Map<String, WoodType> loaded = new HashMap<>();
+            for (WoodType woodType : woodTypeRepository.findAll()) {
+                loaded.put(woodType.getType(), woodType);
+            }
+            types = Map.copyOf(loaded);
+            unknownTypes.clear();
+            logger.info("Wood type registry loaded: {}", loaded.keySet());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean exists(String type) {
+        if (types.containsKey(type)) {
+            return true;
+        }
+        if (unknownTypes.contains(type)) {
+            return false;
+        }
+        if (!woodTypeRepository.existsById(type)) {
+            rememberUnknown(type);
+            return false;
+        }
+        register(new WoodType(type));
+        return true;
+    }
+
+    public Optional<WoodType> find(String type) {
+        WoodType woodType = types.get(type);
+        if (woodType != null) {
+            return Optional.of(woodType);
+        }
+        if (unknownTypes.contains(type)) {
+            return Optional.empty();
+        }
+        Optional<WoodType> stored = woodTypeRepository.findById(type);
+        stored.ifPresentOrElse(this::register, () -> rememberUnknown(type));
+        return stored;
+    }
+
+    /**
+     * Returns the type, creating and registering it first when it does not exist yet.
+     */
+    public WoodType getOrCreate(String type) {
+        lock.lock();
+        try {
+            return find(type).orElseGet(() -> {
+                logger.info("Creating new wood type: {}", type);
+                WoodType created = woodTypeRepository.save(new WoodType(type));
+                register(created);
+                return created;
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Locks the type's database row until the caller's transaction ends, so writers of one type run one after
+     * another whichever store keeps the woods. Must be called inside a transaction.
+     */
+    public void lockForWrite(String type) {
+        woodTypeRepository.findForUpdate(type);
+    }
+
+    private void register(WoodType woodType) {
+        lock.lock();
+        try {
+            Map<String, WoodType> updated = new HashMap<>(types);
+            updated.put(woodType.getType(), woodType);
+            types = Map.copyOf(updated);
+            unknownTypes.remove(woodType.getType());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A type registered meanwhile is found in types first, so a late entry here is harmless
+    private void rememberUnknown(String type) {
+        if (unknownTypes.size() >= MAX_UNKNOWN_TYPES) {
+            unknownTypes.clear();
+        }
+        unknownTypes.add(type);
+    }
+}
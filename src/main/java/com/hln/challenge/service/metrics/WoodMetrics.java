@@ -0,0 +1,102 @@
+package com.hln.challenge.service.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Meters of the upload and bundle pipelines, published through actuator at /actuator/metrics and
+ * /actuator/prometheus.
+ * <ul>
+ *     <li>{@code wood.upload.stage} (timer; stage = receive, digest, parse, validate, persist; type)</li>
+ *     <li>{@code wood.upload.rows} (counter; outcome = parsed, rejected, inserted, updated, unchanged; type)</li>
+ *     <li>{@code wood.upload.files} (counter; outcome = processed, skipped, rejected; type)</li>
+ *     <li>{@code wood.bundle.stage} (timer; stage = format, fetch, combine, serialize)</li>
+ *     <li>{@code wood.bundle.count} (summary of bundles per response)</li>
+ *     <li>{@code wood.bundle.response.size} (summary of response bytes)</li>
+ * </ul>
+ */
+@Component
+public class WoodMetrics {
+
+    private final MeterRegistry registry;
+    private final DistributionSummary bundleCount;
+    private final DistributionSummary responseSize;
+
+    public WoodMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.bundleCount = DistributionSummary.builder("wood.bundle.count")
+                .description("Bundles returned per response")
+                .register(registry);
+        this.responseSize = DistributionSummary.builder("wood.bundle.response.size")
+                .description("Size of bundle responses")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    public <T> T timeUpload(String stage, String type, Supplier<T> work) {
+        return uploadTimer(stage, type).record(work);
+    }
+
+    public void timeUpload(String stage, String type, Runnable work) {
+        uploadTimer(stage, type).record(work);
+    }
+
+    public void stopUpload(Timer.Sample sample, String stage, String type) {
+        sample.stop(uploadTimer(stage, type));
+    }
+
+    public <T> T timeBundle(String stage, Supplier<T> work) {
+        return bundleTimer(stage).record(work);
+    }
+
+    public void recordBundleStage(String stage, long nanos) {
+        bundleTimer(stage).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void countRows(String type, String outcome, long rows) {
+        Counter.builder("wood.upload.rows")
+                .description("Upload rows by outcome")
+                .tag("type", type)
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment(rows);
+    }
+
+    public void countFiles(String type, String outcome) {
+        Counter.builder("wood.upload.files")
+                .description("Uploaded files by outcome; skipped files matched the last accepted one")
+                .tag("type", type)
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment();
+    }
+
+    public void recordBundleCount(long bundles) {
+        bundleCount.record(bundles);
+    }
+
+    public void recordResponseSize(long bytes) {
+        responseSize.record(bytes);
+    }
+
+    private Timer uploadTimer(String stage, String type) {
+        return Timer.builder("wood.upload.stage")
+                .description("Time spent in each upload stage")
+                .tag("stage", stage)
+                .tag("type", type)
+                .register(registry);
+    }
+
+    private Timer bundleTimer(String stage) {
+        return Timer.builder("wood.bundle.stage")
+                .description("Time spent in each bundle stage")
+                .tag("stage", stage)
+                .register(registry);
+    }
+}
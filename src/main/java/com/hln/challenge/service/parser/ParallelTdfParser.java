@@ -0,0 +1,297 @@
+package com.hln.challenge.service.parser;
+
+import com.hln.challenge.exception.BadRequestException;
+import com.hln.challenge.exception.TdfParseException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parses one TDF file on several cores. The file is cut into byte ranges that each end on a newline, every range
+ * is parsed by its own {@link TdfParser} on a ForkJoin pool and sorted by id, and the sorted runs are merged
+ * pairwise in parallel. Identical duplicates collapse into one row; an id listed with two prices is rejected.
+ * <p>
+ * Errors are reported like the sequential parser's: the first malformed record of the file, with its absolute
+ * line and column.
+ */
+public final class ParallelTdfParser {
+
+    // Ranges smaller than this are not worth a task of their own
+    static final long MIN_RANGE_BYTES = 1 << 20;
+    // Ranges per worker, so a slow range does not leave the other cores idle
+    private static final int RANGES_PER_WORKER = 4;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private ParallelTdfParser() {
+    }
+
+    /**
+     * Parsed records, sorted by id with every id present once.
+     */
+    public record ParsedRows(long[] ids, long[] cents) {
+
+        public int size() {
+            return ids.length;
+        }
+    }
+
+    public static ParsedRows parse(Path file, ForkJoinPool pool) throws IOException {
+        return parse(file, pool, MIN_RANGE_BYTES);
+    }
+
+    static ParsedRows parse(Path file, ForkJoinPool pool, long minRangeBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = split(channel, (long) pool.getParallelism() * RANGES_PER_WORKER, minRangeBytes);
+            List<RangeTask> ranges = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                ranges.add(new RangeTask(channel, bounds[i], bounds[i + 1], i == 0));
+            }
+            try {
+                pool.invoke(new RecursiveAction() {
+                    @Override
+                    protected void compute() {
+                        invokeAll(ranges);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            // Report the earliest bad record, counting the lines of every range before it
+            long linesBefore = 0;
+            for (RangeTask range : ranges) {
+                if (range.error != null) {
+                    throw range.error.shiftedBy(linesBefore);
+                }
+                linesBefore += range.lines;
+            }
+            Run merged = pool.invoke(new MergeTask(ranges.stream().map(range -> range.run).toList()));
+            return new ParsedRows(Arrays.copyOf(merged.ids, merged.size), Arrays.copyOf(merged.cents, merged.size));
+        }
+    }
+
+    // Start offsets of the ranges followed by the file size; every range but the last ends right after a newline
+    private static long[] split(FileChannel channel, long maxRanges, long minRangeBytes) throws IOException {
+        long size = channel.size();
+        long ranges = Math.max(1, Math.min(maxRanges, size / Math.max(1, minRangeBytes)));
+        long[] bounds = new long[(int) ranges + 1];
+        int count = 1;
+        for (long i = 1; i < ranges; i++) {
+            long bound = nextLineStart(channel, size * i / ranges, size);
+            if (bound > bounds[count - 1] && bound < size) {
+                bounds[count++] = bound;
+            }
+        }
+        bounds[count++] = size;
+        return Arrays.copyOf(bounds, count);
+    }
+
+    private static long nextLineStart(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        // Start one byte early so a range already beginning a line is left as it is
+        long position = from - 1;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static final class RangeTask extends RecursiveAction {
+        private final FileChannel channel;
+        private final long from;
+        private final long to;
+        private final boolean headerAllowed;
+        private Run run;
+        private long lines;
+        private TdfParseException error;
+
+        private RangeTask(FileChannel channel, long from, long to, boolean headerAllowed) {
+            this.channel = channel;
+            this.from = from;
+            this.to = to;
+            this.headerAllowed = headerAllowed;
+        }
+
+        @Override
+        protected void compute() {
+            Run rows = new Run(Math.max(16, (int) Math.min(1 << 20, (to - from) / 16)));
+            TdfParser parser = new TdfParser(rows, 1, headerAllowed);
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            try {
+                long position = from;
+                while (position < to) {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(BUFFER_SIZE, to - position));
+                    int read = channel.read(buffer, position);
+                    if (read <= 0) {
+                        break;
+                    }
+                    parser.feed(buffer.array(), 0, read);
+                    position += read;
+                }
+                parser.finish();
+            } catch (TdfParseException e) {
+                error = e;
+                return;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            lines = parser.getLine() - 1;
+            run = rows;
+        }
+    }
+
+    // Sorts each range's rows by id, then merges the runs pairwise; duplicates are only checked once the file parsed cleanly
+    private static final class MergeTask extends RecursiveTask<Run> {
+        private final List<Run> runs;
+
+        private MergeTask(List<Run> runs) {
+            this.runs = runs;
+        }
+
+        @Override
+        protected Run compute() {
+            if (runs.size() == 1) {
+                Run run = runs.get(0);
+                run.sortAndDedupe();
+                return run;
+            }
+            int middle = runs.size() / 2;
+            MergeTask left = new MergeTask(runs.subList(0, middle));
+            left.fork();
+            Run right = new MergeTask(runs.subList(middle, runs.size())).compute();
+            return Run.merge(left.join(), right);
+        }
+    }
+
+    // Growable parallel arrays of parsed records
+    private static final class Run implements TdfParser.RowHandler {
+        private long[] ids;
+        private long[] cents;
+        private int size;
+
+        private Run(int capacity) {
+            this.ids = new long[capacity];
+            this.cents = new long[capacity];
+        }
+
+        @Override
+        public void row(long id, long price) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                cents = Arrays.copyOf(cents, size * 2);
+            }
+            ids[size] = id;
+            cents[size] = price;
+            size++;
+        }
+
+        private void sortAndDedupe() {
+            sort(0, size - 1);
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (kept > 0 && ids[kept - 1] == ids[i]) {
+                    checkSamePrice(ids[i], cents[kept - 1], cents[i]);
+                } else {
+                    ids[kept] = ids[i];
+                    cents[kept] = cents[i];
+                    kept++;
+                }
+            }
+            size = kept;
+        }
+
+        private static Run merge(Run a, Run b) {
+            Run merged = new Run(Math.max(1, a.size + b.size));
+            int i = 0;
+            int j = 0;
+            while (i < a.size || j < b.size) {
+                if (j == b.size || (i < a.size && a.ids[i] < b.ids[j])) {
+                    merged.append(a.ids[i], a.cents[i++]);
+                } else if (i == a.size || b.ids[j] < a.ids[i]) {
+                    merged.append(b.ids[j], b.cents[j++]);
+                } else {
+                    checkSamePrice(a.ids[i], a.cents[i], b.cents[j]);
+                    merged.append(a.ids[i], a.cents[i]);
+                    i++;
+                    j++;
+                }
+            }
+            return merged;
+        }
+
+        private void append(long id, long price) {
+            ids[size] = id;
+            cents[size] = price;
+            size++;
+        }
+
+        // Quicksort of the parallel arrays by id, recursing into the smaller side
+        private void sort(int low, int high) {
+            while (high - low >= INSERTION_SORT_THRESHOLD) {
+                long pivot = ids[low + (high - low) / 2];
+                int i = low;
+                int j = high;
+                while (i <= j) {
+                    while (ids[i] < pivot) {
+                        i++;
+                    }
+                    while (ids[j] > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        swap(i++, j--);
+                    }
+                }
+                if (j - low < high - i) {
+                    sort(low, j);
+                    low = i;
+                } else {
+                    sort(i, high);
+                    high = j;
+                }
+            }
+            for (int i = low + 1; i <= high; i++) {
+                for (int j = i; j > low && ids[j - 1] > ids[j]; j--) {
+                    swap(j - 1, j);
+                }
+            }
+        }
+
+        private void swap(int i, int j) {
+            long id = ids[i];
+            ids[i] = ids[j];
+            ids[j] = id;
+            long price = cents[i];
+            cents[i] = cents[j];
+            cents[j] = price;
+        }
+
+        private static void checkSamePrice(long id, long kept, long duplicate) {
+            if (kept != duplicate) {
+                throw new BadRequestException("Conflicting duplicate entries for wood id " + id);
+            }
+        }
+    }
+}
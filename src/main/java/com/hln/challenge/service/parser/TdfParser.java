@@ -0,0 +1,251 @@
+package com.hln.challenge.service.parser;
+
+import com.hln.challenge.exception.TdfParseException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Byte-level parser for the supplier TDF format: one {@code id <tabs> $price} record per line, with an optional
+ * {@code id price} header, any number of tabs or spaces between fields, and ignored trailing fields.
+ * <p>
+ * Ids are parsed straight into a {@code long} and prices into {@code long} cents, and records are handed to a
+ * {@link RowHandler} as primitives, so parsing allocates nothing per line. Input can be pushed in arbitrary slices
+ * with {@link #feed} followed by {@link #finish}; the first bad record fails with its line and column.
+ */
+public final class TdfParser {
+
+    /**
+     * Receives each parsed record.
+     */
+    @FunctionalInterface
+    public interface RowHandler {
+        void row(long id, long cents);
+    }
+
+    // Largest price NUMERIC(10,2) can hold
+    static final long MAX_CENTS = 9_999_999_999L;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_HEADER_LENGTH = 64;
+
+    private static final int LINE_START = 0;
+    private static final int ID = 1;
+    private static final int BEFORE_PRICE = 2;
+    private static final int AFTER_DOLLAR = 3;
+    private static final int PRICE_UNITS = 4;
+    private static final int PRICE_FRACTION = 5;
+    private static final int REST_OF_LINE = 6;
+    private static final int HEADER = 7;
+
+    private final RowHandler handler;
+    private boolean headerAllowed;
+    private int state = LINE_START;
+    private long line;
+    private int column;
+    private long id;
+    private long cents;
+    private int fractionDigits;
+    private long rows;
+    private final byte[] header = new byte[MAX_HEADER_LENGTH];
+    private int headerLength;
+
+    public TdfParser(RowHandler handler) {
+        this(handler, 1, true);
+    }
+
+    /**
+     * Starts parsing at {@code firstLine}, e.g. for a slice of a larger file; only a slice holding the file's
+     * first line may contain the header.
+     */
+    public TdfParser(RowHandler handler, long firstLine, boolean headerAllowed) {
+        this.handler = handler;
+        this.line = firstLine;
+        this.headerAllowed = headerAllowed;
+    }
+
+    /**
+     * Parses the whole stream and returns the number of records read.
+     */
+    public static long parse(InputStream in, RowHandler handler) throws IOException {
+        TdfParser parser = new TdfParser(handler);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            parser.feed(buffer, 0, read);
+        }
+        return parser.finish();
+    }
+
+    public void feed(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            accept(bytes[i]);
+        }
+    }
+
+    /**
+     * Completes a last line that has no trailing newline and returns the number of records read.
+     */
+    public long finish() {
+        if (state != LINE_START) {
+            column++;
+            endLine();
+        }
+        return rows;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * The line being read; after {@link #finish} it is one past the last line.
+     */
+    public long getLine() {
+        return line;
+    }
+
+    private void accept(byte b) {
+        column++;
+        if (b == '\n') {
+            endLine();
+            return;
+        }
+        boolean separator = b == '\t' || b == ' ' || b == '\r';
+        switch (state) {
+            case LINE_START -> {
+                if (isDigit(b)) {
+                    id = b - '0';
+                    state = ID;
+                } else if (!separator) {
+                    if (!headerAllowed) {
+                        throw error("expected an id");
+                    }
+                    state = HEADER;
+                    headerLength = 0;
+                    appendHeader(b);
+                }
+            }
+            case ID -> {
+                if (isDigit(b)) {
+                    int digit = b - '0';
+                    if (id > (Long.MAX_VALUE - digit) / 10) {
+                        throw error("id is too large");
+                    }
+                    id = id * 10 + digit;
+                } else if (separator) {
+                    state = BEFORE_PRICE;
+                } else {
+                    throw error("invalid character in id");
+                }
+            }
+            case BEFORE_PRICE -> {
+                if (b == '$') {
+                    state = AFTER_DOLLAR;
+                } else if (isDigit(b)) {
+                    startPrice(b);
+                } else if (!separator) {
+                    throw error("expected a price");
+                }
+            }
+            case AFTER_DOLLAR -> {
+                if (!isDigit(b)) {
+                    throw error("expected a digit after '$'");
+                }
+                startPrice(b);
+            }
+            case PRICE_UNITS -> {
+                if (isDigit(b)) {
+                    cents = cents * 10 + (b - '0') * 100L;
+                    checkPriceRange();
+                } else if (b == '.') {
+                    state = PRICE_FRACTION;
+                } else if (separator) {
+                    endRecord();
+                } else {
+                    throw error("invalid character in price");
+                }
+            }
+            case PRICE_FRACTION -> {
+                if (isDigit(b)) {
+                    if (fractionDigits == 2) {
+                        throw error("price has more than two decimals");
+                    }
+                    cents += (b - '0') * (fractionDigits == 0 ? 10L : 1L);
+                    fractionDigits++;
+                    checkPriceRange();
+                } else if (separator) {
+                    endRecord();
+                } else {
+                    throw error("invalid character in price");
+                }
+            }
+            case HEADER -> appendHeader(b);
+            default -> {
+                // REST_OF_LINE: trailing fields are ignored
+            }
+        }
+    }
+
+    private void endLine() {
+        switch (state) {
+            case ID, BEFORE_PRICE -> throw error("missing price");
+            case AFTER_DOLLAR -> throw error("expected a digit after '$'");
+            case PRICE_UNITS, PRICE_FRACTION -> endRecord();
+            case HEADER -> checkHeader();
+            default -> {
+                // LINE_START or REST_OF_LINE: nothing pending
+            }
+        }
+        state = LINE_START;
+        line++;
+        column = 0;
+    }
+
+    private void startPrice(byte b) {
+        cents = (b - '0') * 100L;
+        fractionDigits = 0;
+        state = PRICE_UNITS;
+    }
+
+    private void checkPriceRange() {
+        if (cents > MAX_CENTS) {
+            throw error("price is too large");
+        }
+    }
+
+    private void endRecord() {
+        if (id == 0) {
+            throw error("id must be positive");
+        }
+        handler.row(id, cents);
+        rows++;
+        headerAllowed = false;
+        state = REST_OF_LINE;
+    }
+
+    private void appendHeader(byte b) {
+        if (headerLength == MAX_HEADER_LENGTH) {
+            throw error("expected an id");
+        }
+        header[headerLength++] = b;
+    }
+
+    // The header must be exactly the labels "id" and "price", in any case, separated by tabs or spaces
+    private void checkHeader() {
+        String[] labels = new String(header, 0, headerLength, StandardCharsets.US_ASCII).trim().split("[\\t \\r]+");
+        if (labels.length != 2 || !labels[0].equalsIgnoreCase("id") || !labels[1].equalsIgnoreCase("price")) {
+            throw new TdfParseException(line, 1, "expected an id");
+        }
+        headerAllowed = false;
+    }
+
+    private TdfParseException error(String reason) {
+        return new TdfParseException(line, column, reason);
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+}
@@ -10,4 +10,16 @@ CREATE TABLE wood
     price NUMERIC(10,2)     NOT NULL,
     PRIMARY KEY (type, id),
     FOREIGN KEY (type) REFERENCES wood_type (type)
-);
\ No newline at end of file
+);
+
+-- Covers the price-ordered reads of one or more types, which are then answered from the index without the table
+CREATE INDEX wood_type_price_id ON wood (type, price DESC, id);
+
+-- SHA-256 of the last upload accepted per type; a resent file with the same digest is skipped without parsing
+CREATE TABLE wood_upload_digest
+(
+    type      VARCHAR(64) NOT NULL PRIMARY KEY,
+    digest    CHAR(64)    NOT NULL,
+    row_count INT         NOT NULL,
+    FOREIGN KEY (type) REFERENCES wood_type (type) ON DELETE CASCADE
+);
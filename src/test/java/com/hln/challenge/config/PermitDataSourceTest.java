@@ -0,0 +1,53 @@
+package com.hln.challenge.config;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PermitDataSourceTest {
+
+    private final DataSource pool = mock(DataSource.class);
+    private final Connection pooled = mock(Connection.class);
+
+    @Test
+    void testWaitsForAPermitBeyondTheLimit() throws SQLException {
+        when(pool.getConnection()).thenReturn(pooled);
+        PermitDataSource dataSource = new PermitDataSource(pool, 1, Duration.ofMillis(10));
+
+        Connection first = dataSource.getConnection();
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+
+        first.close();
+        first.close();
+        verify(pooled, times(2)).close();
+        // Closing twice returned the permit once
+        assertEquals(1, dataSource.availablePermits());
+        dataSource.getConnection();
+        assertEquals(0, dataSource.availablePermits());
+    }
+
+    @Test
+    void testFailedConnectionReturnsItsPermit() throws SQLException {
+        when(pool.getConnection()).thenThrow(new SQLException("pool exhausted"));
+        PermitDataSource dataSource = new PermitDataSource(pool, 2, Duration.ofMillis(10));
+
+        assertThrows(SQLException.class, dataSource::getConnection);
+        assertEquals(2, dataSource.availablePermits());
+    }
+
+    @Test
+    void testRejectsPoolWithoutPermits() {
+        assertThrows(IllegalArgumentException.class, () -> new PermitDataSource(pool, -1, Duration.ofMillis(10)));
+    }
+}
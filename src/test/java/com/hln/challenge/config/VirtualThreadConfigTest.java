@@ -0,0 +1,45 @@
+package com.hln.challenge.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VirtualThreadConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(DataSourceAutoConfiguration.class))
+            .withUserConfiguration(VirtualThreadConfig.class)
+            .withPropertyValues("wood.web.virtual-threads=true",
+                    "spring.datasource.url=jdbc:h2:mem:permits;DB_CLOSE_DELAY=-1",
+                    "spring.datasource.hikari.connection-timeout=1000");
+
+    @Test
+    void testUnsizedPoolGetsHikariDefaultPermits() {
+        contextRunner.run(context -> {
+            PermitDataSource dataSource = assertInstanceOf(PermitDataSource.class, context.getBean(DataSource.class));
+            assertEquals(10, dataSource.availablePermits());
+
+            try (Connection connection = dataSource.getConnection()) {
+                assertTrue(connection.isValid(1));
+                assertEquals(9, dataSource.availablePermits());
+            }
+            assertEquals(10, dataSource.availablePermits());
+        });
+    }
+
+    @Test
+    void testPermitsFollowConfiguredPoolSize() {
+        contextRunner.withPropertyValues("spring.datasource.hikari.maximum-pool-size=3").run(context -> {
+            PermitDataSource dataSource = assertInstanceOf(PermitDataSource.class, context.getBean(DataSource.class));
+            assertEquals(3, dataSource.availablePermits());
+        });
+    }
+}
@@ -0,0 +1,49 @@
+package com.hln.challenge.controller;
+
+import com.hln.challenge.service.metrics.WoodMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BundleResponseMetricsFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BundleResponseMetricsFilter filter = new BundleResponseMetricsFilter(new WoodMetrics(meterRegistry));
+
+    @Test
+    void testRecordsSizeAndSerializeTimeOfBundleResponses() throws Exception {
+        byte[] body = "{\"bundles\":[],\"total\":0}".getBytes(StandardCharsets.UTF_8);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/bundle"), response,
+                new MockFilterChain(new HttpServlet() {
+                    @Override
+                    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                        resp.getOutputStream().write(body);
+                    }
+                }));
+
+        assertEquals(body.length, response.getContentAsByteArray().length);
+        assertEquals(body.length, meterRegistry.get("wood.bundle.response.size").summary().totalAmount());
+        assertEquals(1, meterRegistry.get("wood.bundle.stage").tag("stage", "serialize").timer().count());
+    }
+
+    @Test
+    void testIgnoresOtherPaths() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/upload/OAK"), response, new MockFilterChain());
+
+        assertEquals(0, meterRegistry.get("wood.bundle.response.size").summary().count());
+    }
+}
@@ -1,6 +1,8 @@
 package com.hln.challenge.controller;
 
 import com.hln.challenge.exception.BadRequestException;
+import com.hln.challenge.exception.NotFoundException;
+import com.hln.challenge.exception.TooManyRequestsException;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -11,4 +13,14 @@ public class DummyController {
     public void triggerException() {
         throw new BadRequestException("Testing for BadRequestException");
     }
+
+    @GetMapping("/trigger-not-found")
+    public void triggerNotFound() {
+        throw new NotFoundException("Testing for NotFoundException");
+    }
+
+    @GetMapping("/trigger-too-many-requests")
+    public void triggerTooManyRequests() {
+        throw new TooManyRequestsException("Testing for TooManyRequestsException");
+    }
 }
@@ -1,21 +1,49 @@
 package com.hln.challenge.controller;
 
-import com.hln.challenge.persistence.models.Wood;
+import com.hln.challenge.persistence.projections.WoodPrice;
+import com.hln.challenge.persistence.store.PriceRowCallback;
+import com.hln.challenge.service.BulkUploadService;
+import com.hln.challenge.service.UploadJobService;
 import com.hln.challenge.service.WoodService;
+import com.hln.challenge.service.dto.BulkUploadResult;
 import com.hln.challenge.service.dto.Bundle;
+import com.hln.challenge.service.dto.BundleCount;
+import com.hln.challenge.service.dto.BundlePage;
+import com.hln.challenge.service.dto.BundleWood;
+import com.hln.challenge.service.dto.TypeUploadResult;
+import com.hln.challenge.service.dto.UploadJobStatus;
+import com.hln.challenge.service.dto.UploadResult;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockMultipartFile;
-
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -25,14 +53,23 @@ public class WoodControllerTest {
     @Mock
     private WoodService woodService;
 
+    @Mock
+    private BulkUploadService bulkUploadService;
+
+    @Mock
+    private UploadJobService uploadJobService;
+
     @InjectMocks
     private WoodController woodController;
 
     private AutoCloseable closeable;
 
+    private static final String ETAG = "\"0123456789abcdef\"";
+
     @BeforeEach
     void setUp() {
         closeable = MockitoAnnotations.openMocks(this);
+        when(woodService.bundleETag(any(), any(), any(), any())).thenReturn(ETAG);
     }
 
     @AfterEach
@@ -44,15 +81,63 @@ public class WoodControllerTest {
         String type = "OAK";
         MockMultipartFile file = new MockMultipartFile("file", "filename.txt", "text/plain", "content".getBytes());
 
-        List<Wood> mockResponse = new ArrayList<>();
-        when(woodService.processFileUpload(type, file)).thenReturn(mockResponse);
+        List<WoodPrice> mockResponse = new ArrayList<>();
+        when(woodService.processFileUpload(type, file)).thenReturn(new UploadResult(type, mockResponse, 2, 1, 0));
 
         ResponseEntity<?> response = woodController.uploadFile(type, file);
 
-        assertEquals(ResponseEntity.ok(mockResponse), response);
+        assertEquals(mockResponse, response.getBody());
+        assertEquals("2", response.getHeaders().getFirst("X-Rows-Inserted"));
+        assertEquals("1", response.getHeaders().getFirst("X-Rows-Updated"));
+        assertEquals("0", response.getHeaders().getFirst("X-Rows-Unchanged"));
         verify(woodService).processFileUpload(type, file);
     }
 
+    @Test
+    void testUploadFileAsyncAnswersAcceptedWithJobLocation() {
+        MockMultipartFile file = new MockMultipartFile("file", "filename.txt", "text/plain", "content".getBytes());
+        UploadJobStatus job = new UploadJobStatus("job-1", "OAK", UploadJobStatus.State.QUEUED, 0, 0, 0, 0, null);
+        when(uploadJobService.submit("OAK", file)).thenReturn(job);
+
+        ResponseEntity<UploadJobStatus> response = woodController.uploadFileAsync("OAK", file);
+
+        assertEquals(202, response.getStatusCode().value());
+        assertEquals("/api/upload/jobs/job-1", response.getHeaders().getLocation().toString());
+        assertEquals(job, response.getBody());
+    }
+
+    @Test
+    void testGetUploadJobAnswersNotModifiedUntilTheJobMovesOn() {
+        UploadJobStatus running = new UploadJobStatus("job-1", "OAK", UploadJobStatus.State.RUNNING, 500, 0, 0, 0, null);
+        when(uploadJobService.getStatus("job-1")).thenReturn(running);
+
+        ResponseEntity<UploadJobStatus> first = woodController.getUploadJob("job-1", null);
+        String eTag = first.getHeaders().getETag();
+        assertEquals(running, first.getBody());
+        assertEquals(HttpStatus.NOT_MODIFIED, woodController.getUploadJob("job-1", eTag).getStatusCode());
+
+        running.setRowsParsed(1000);
+        ResponseEntity<UploadJobStatus> progressed = woodController.getUploadJob("job-1", eTag);
+        assertEquals(HttpStatus.OK, progressed.getStatusCode());
+        assertNotEquals(eTag, progressed.getHeaders().getETag());
+
+        UploadJobStatus done = new UploadJobStatus("job-1", "OAK", UploadJobStatus.State.SUCCEEDED, 1000, 1000, 0, 0, null);
+        when(uploadJobService.getStatus("job-1")).thenReturn(done);
+        assertEquals(HttpStatus.OK, woodController.getUploadJob("job-1", progressed.getHeaders().getETag()).getStatusCode());
+    }
+
+    @Test
+    void testUploadFiles() {
+        MultiValueMap<String, MultipartFile> files = new LinkedMultiValueMap<>();
+        files.add("OAK", new MockMultipartFile("OAK", "oak.tdf", "text/plain", "1\t$10.00\n".getBytes()));
+        BulkUploadResult result = new BulkUploadResult(List.of(new TypeUploadResult("OAK", true, null, 1, 0, 0, 3)), 4);
+        when(bulkUploadService.processBulkUpload(files)).thenReturn(result);
+
+        ResponseEntity<BulkUploadResult> response = woodController.uploadFiles(files);
+
+        assertEquals(result, response.getBody());
+    }
+
     @Test
     void testGetBundles() {
         String type = "OAK";
@@ -60,11 +145,106 @@ public class WoodControllerTest {
         Double maxPrice = 50.0;
 
         List<Bundle> mockResponse = new ArrayList<>();
-        when(woodService.getBundles(type, minPrice, maxPrice)).thenReturn(mockResponse);
+        when(woodService.getBundles(type, minPrice, maxPrice, false)).thenReturn(mockResponse);
+
+        ResponseEntity<?> response = woodController.getBundles(type, minPrice, maxPrice, null, null, false, null);
 
-        ResponseEntity<?> response = woodController.getBundles(type, minPrice, maxPrice);
+        assertEquals(ResponseEntity.ok().eTag(ETAG).body(mockResponse), response);
+        verify(woodService).getBundles(type, minPrice, maxPrice, false);
+    }
 
-        assertEquals(ResponseEntity.ok(mockResponse), response);
-        verify(woodService).getBundles(type, minPrice, maxPrice);
+    @Test
+    void testGetBundlePage() {
+        String type = "OAK";
+
+        BundlePage mockResponse = new BundlePage(new ArrayList<>(), 0, null);
+        when(woodService.getBundlePage(type, null, null, 10, "cursor", false)).thenReturn(mockResponse);
+
+        ResponseEntity<?> response = woodController.getBundles(type, null, null, 10, "cursor", false, null);
+
+        assertEquals(ResponseEntity.ok().eTag(ETAG).body(mockResponse), response);
+        verify(woodService).getBundlePage(type, null, null, 10, "cursor", false);
+    }
+
+    @Test
+    void testGetBundlesAnswersNotModifiedWithoutCombining() {
+        ResponseEntity<?> response = woodController.getBundles("OAK", null, null, null, null, false, "W/" + ETAG);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals(ETAG, response.getHeaders().getETag());
+        verify(woodService, never()).getBundles(any(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    void testIsNotModified() {
+        assertTrue(WoodController.isNotModified("\"other\", " + ETAG, ETAG));
+        assertTrue(WoodController.isNotModified("*", ETAG));
+        assertFalse(WoodController.isNotModified("\"other\"", ETAG));
+        assertFalse(WoodController.isNotModified(null, ETAG));
+    }
+
+    @Test
+    void testCountBundles() {
+        BundleCount mockResponse = new BundleCount(42);
+        when(woodService.countBundles("OAK,PINE", 10.0, null)).thenReturn(mockResponse);
+
+        ResponseEntity<BundleCount> response = woodController.countBundles("OAK,PINE", 10.0, null, null);
+
+        assertEquals(ResponseEntity.ok().eTag(ETAG).body(mockResponse), response);
+    }
+
+    @Test
+    void testSearchBundles() {
+        List<Bundle> mockResponse = List.of(new Bundle("7", List.of(), new BigDecimal("12.50")));
+        when(woodService.searchBundles("OAK", 12.0, null, 20.0, 3, false)).thenReturn(mockResponse);
+
+        ResponseEntity<List<Bundle>> response = woodController.searchBundles("OAK", 3, 12.0, null, 20.0, false, null);
+
+        assertEquals(ResponseEntity.ok().eTag(ETAG).body(mockResponse), response);
+    }
+
+    @Test
+    void testGetBundleById() {
+        Bundle bundle = new Bundle("AQ", List.of(), new BigDecimal("12.50"));
+        when(woodService.getBundle("AQ")).thenReturn(bundle);
+
+        assertEquals(ResponseEntity.ok(bundle), woodController.getBundle("AQ"));
+    }
+
+    @Test
+    void testStreamBundles() throws Exception {
+        String type = "OAK";
+        BundleWood wood = new BundleWood(type, 7L, new BigDecimal("12.50"));
+        Bundle bundle = new Bundle("7", List.of(wood), new BigDecimal("12.50"));
+        when(woodService.getBundleStream(type, null, null, false)).thenReturn(Stream.of(bundle));
+
+        ResponseEntity<StreamingResponseBody> response = woodController.streamBundles(type, null, null, false, null);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+        assertEquals("{\"bundles\":[{\"id\":\"7\",\"bundle\":[{\"type\":\"OAK\",\"id\":7,\"price\":12.50}],\"price\":12.50}],\"total\":1}",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testStreamUploadFile() throws Exception {
+        String type = "OAK";
+        MockMultipartFile file = new MockMultipartFile("file", "filename.txt", "text/plain", "content".getBytes());
+        when(woodService.processStreamingUpload(type, file)).thenReturn(new UploadResult(type, null, 1, 1, 0));
+        doAnswer(invocation -> {
+            PriceRowCallback callback = invocation.getArgument(1);
+            callback.row(2L, 2500L);
+            callback.row(1L, 1000L);
+            return null;
+        }).when(woodService).forEachCurrentWood(eq(type), any());
+
+        ResponseEntity<StreamingResponseBody> response = woodController.streamUploadFile(type, file);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        assertEquals("1", response.getHeaders().getFirst("X-Rows-Inserted"));
+        assertEquals("1", response.getHeaders().getFirst("X-Rows-Updated"));
+        assertEquals("[{\"id\":2,\"price\":25.00},{\"id\":1,\"price\":10.00}]", out.toString(StandardCharsets.UTF_8));
     }
-}
\ No newline at end of file
+}
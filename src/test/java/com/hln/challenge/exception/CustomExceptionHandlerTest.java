@@ -23,4 +23,18 @@ public class CustomExceptionHandlerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(content().string(org.hamcrest.Matchers.anything()));
     }
+
+    @Test
+    void testHandleNotFound() throws Exception {
+        mockMvc.perform(get("/trigger-not-found"))
+                .andExpect(status().isNotFound())
+                .andExpect(content().string("Testing for NotFoundException"));
+    }
+
+    @Test
+    void testHandleTooManyRequests() throws Exception {
+        mockMvc.perform(get("/trigger-too-many-requests"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(content().string("Testing for TooManyRequestsException"));
+    }
 }
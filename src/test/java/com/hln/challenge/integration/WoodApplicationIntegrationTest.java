@@ -7,6 +7,11 @@ import com.hln.challenge.persistence.models.WoodId;
 import com.hln.challenge.persistence.models.WoodType;
 import com.hln.challenge.persistence.repository.WoodRepository;
 import com.hln.challenge.persistence.repository.WoodTypeRepository;
+import com.hln.challenge.persistence.store.WoodStore;
+import com.hln.challenge.service.WoodTransactionalService;
+import com.hln.challenge.service.dto.UploadResult;
+import com.hln.challenge.service.index.WoodPriceIndex;
+import com.hln.challenge.service.index.WoodTypeRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -17,15 +22,22 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.ByteArrayInputStream;
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -45,6 +57,21 @@ public class WoodApplicationIntegrationTest {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private WoodPriceIndex priceIndex;
+
+    @Autowired
+    private WoodTransactionalService woodTransactionalService;
+
+    @Autowired
+    private WoodTypeRegistry typeRegistry;
+
+    @Autowired
+    private WoodStore woodStore;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     private MockMvc mockMvc;
 
     @BeforeEach
@@ -68,6 +95,9 @@ public class WoodApplicationIntegrationTest {
         woodRepository.save(new Wood(new WoodId("OAK", 1L), oakType, new BigDecimal("10.00")));
         woodRepository.save(new Wood(new WoodId("PINE", 2L), pineType, new BigDecimal("12.00")));
         woodRepository.save(new Wood(new WoodId("MAPLE", 3L), mapleType, new BigDecimal("15.00")));
+
+        // Rows saved straight through the repository bypass the upload path, so republish the index by hand
+        priceIndex.rebuild();
     }
 
     @AfterEach
@@ -93,11 +123,95 @@ public class WoodApplicationIntegrationTest {
                 "1\t$10.0\tOAK\n2\t$15.0\tOAK\n".getBytes()
         );
 
+        // Every stored OAK as {id, price}, by price descending then id ascending
         mockMvc.perform(multipart("/api/upload/OAK").file(file))
                 .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(2))
+                .andExpect(jsonPath("$[0].price").value(15.0))
+                .andExpect(jsonPath("$[1].id").value(1))
+                .andExpect(jsonPath("$[0].woodType").doesNotExist())
                 .andDo(print());
     }
 
+    @Test
+    void testResentFileWritesNothing() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "filename.txt", "text/plain",
+                "1\t$10.0\n2\t$15.0\n".getBytes());
+
+        mockMvc.perform(multipart("/api/upload/OAK").file(file))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Rows-Inserted", "1"))
+                .andExpect(header().string("X-Rows-Unchanged", "1"));
+        // The same file again matches the last accepted one and is skipped as a whole
+        mockMvc.perform(multipart("/api/upload/OAK").file(file))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Rows-Inserted", "0"))
+                .andExpect(header().string("X-Rows-Updated", "0"))
+                .andExpect(header().string("X-Rows-Unchanged", "2"))
+                .andExpect(jsonPath("$[0].id").value(2));
+    }
+
+    @Test
+    void testConcurrentUploadOfSameTypeDiffsAgainstCommittedRows() throws Exception {
+        WoodType oakType = woodTypeRepository.findById("OAK").orElseThrow();
+        Wood repriced = new Wood(new WoodId("OAK", 1L), oakType, new BigDecimal("11.00"));
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // A first writer re-prices OAK 1 while holding the type lock
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() ->
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    typeRegistry.lockForWrite("OAK");
+                    locked.countDown();
+                    await(release);
+                    woodStore.merge("OAK", List.of(repriced));
+                }));
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<UploadResult> second = CompletableFuture.supplyAsync(() ->
+                woodTransactionalService.upsertAll("OAK", List.of(repriced), "digest"));
+        Thread.sleep(200);
+        assertFalse(second.isDone(), "The second upload must wait for the first to commit");
+
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        UploadResult result = second.get(5, TimeUnit.SECONDS);
+        // Diffed against the committed 11.00, not the 10.00 it would have read without the lock
+        assertEquals(0, result.getUpdated());
+        assertEquals(1, result.getUnchanged());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    void testStreamingUploadMergesOnlyChangedRows() {
+        // OAK 1 is stored at 10.00: unchanged here, while 2 and 3 are new and 2 arrives twice
+        byte[] file = "1\t$10.00\n2\t$15.00\n3\t$7.50\n2\t$15.00\n".getBytes();
+
+        UploadResult result = woodTransactionalService.ingestChunked("OAK", new ByteArrayInputStream(file), null);
+
+        assertEquals(2, result.getInserted());
+        assertEquals(0, result.getUpdated());
+        assertEquals(1, result.getUnchanged());
+        assertEquals(List.of(2L, 1L, 3L), jdbcTemplate.queryForList(
+                "SELECT id FROM wood WHERE type = 'OAK' ORDER BY price DESC", Long.class));
+
+        result = woodTransactionalService.ingestChunked("OAK",
+                new ByteArrayInputStream("1\t$11.00\n3\t$7.50\n".getBytes()), null);
+
+        assertEquals(0, result.getInserted());
+        assertEquals(1, result.getUpdated());
+        assertEquals(1, result.getUnchanged());
+        assertEquals(0, new BigDecimal("11.00").compareTo(jdbcTemplate.queryForObject(
+                "SELECT price FROM wood WHERE type = 'OAK' AND id = 1", BigDecimal.class)));
+    }
+
     @Test
     void testInvalidFileUpload() throws Exception {
         MockMultipartFile invalidFile = new MockMultipartFile(
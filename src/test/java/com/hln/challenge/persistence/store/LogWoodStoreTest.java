@@ -0,0 +1,253 @@
+package com.hln.challenge.persistence.store;
+
+import com.hln.challenge.config.StoreProperties;
+import com.hln.challenge.persistence.models.Wood;
+import com.hln.challenge.persistence.models.WoodId;
+import com.hln.challenge.persistence.projections.WoodPrice;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LogWoodStoreTest {
+
+    private Path directory;
+    private LogWoodStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("wood-store-");
+        store = open(100);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    void testMergedWoodsSurviveReopen() throws IOException {
+        store.merge("OAK", List.of(wood("OAK", 1, "10.50"), wood("OAK", 2, "99.99")));
+        store.merge("PINE", List.of(wood("PINE", 7, "5.00")));
+        store.merge("OAK", List.of(wood("OAK", 1, "12.00")));
+
+        reopen(100);
+
+        assertEquals(List.of("OAK", "PINE"), store.findAllTypes());
+        assertEquals(List.of(new WoodPrice(2, new BigDecimal("99.99")), new WoodPrice(1, new BigDecimal("12.00"))),
+                store.findPricesByType("OAK"));
+        assertEquals(List.of(new WoodPrice(7, new BigDecimal("5.00"))), store.findPricesByType("PINE"));
+    }
+
+    @Test
+    void testCompactsIntoSegmentsWhenLogIsFull() throws IOException {
+        // An existing log keeps its size, so start from a small new one
+        store.close();
+        Files.delete(directory.resolve("wood.log"));
+        store = open(8);
+        for (int round = 0; round < 5; round++) {
+            store.merge("OAK", List.of(wood("OAK", round, "1.00"), wood("OAK", round + 100, "2.00")));
+        }
+        // Larger than the whole log
+        List<Wood> large = new ArrayList<>();
+        for (int id = 200; id > 180; id--) {
+            large.add(wood("OAK", id, "3.00"));
+        }
+        store.merge("OAK", large);
+
+        assertTrue(Files.exists(directory.resolve("segment-1.seg")));
+        reopen(8);
+
+        PriceSnapshot snapshot = store.findPriceSnapshot("OAK");
+        assertEquals(30, snapshot.size());
+        assertEquals(100, snapshot.centsOf(4));
+        assertEquals(200, snapshot.centsOf(104));
+        assertEquals(300, snapshot.centsOf(181));
+    }
+
+    @Test
+    void testIgnoresBatchNotCommittedBeforeCrash() throws IOException {
+        store.merge("OAK", List.of(wood("OAK", 1, "10.00")));
+        store.close();
+        try (WoodLog log = WoodLog.open(directory.resolve("wood.log"), 100, (type, id, cents) -> { })) {
+            log.append(1, 2, 2000);
+        }
+
+        store = open(100);
+        store.merge("OAK", List.of(wood("OAK", 3, "30.00")));
+        reopen(100);
+
+        assertEquals(List.of(new WoodPrice(3, new BigDecimal("30.00")), new WoodPrice(1, new BigDecimal("10.00"))),
+                store.findPricesByType("OAK"));
+    }
+
+    @Test
+    void testSortsByPriceDescendingThenId() {
+        store.merge("OAK", List.of(wood("OAK", 5, "1.00"), wood("OAK", 3, "2.00"), wood("OAK", 4, "2.00"),
+                wood("OAK", 1, "0.50")));
+
+        List<Long> ids = new ArrayList<>();
+        store.forEachByTypeSorted("OAK", (id, cents) -> ids.add(id));
+
+        assertEquals(List.of(3L, 4L, 5L, 1L), ids);
+    }
+
+    @Test
+    void testStreamsTypesGroupedAfterSegmentsAreReplaced() throws IOException {
+        store.close();
+        Files.delete(directory.resolve("wood.log"));
+        store = open(4);
+        // Every round compacts, so each type's segment is replaced several times
+        for (int round = 0; round < 4; round++) {
+            store.merge("PINE", List.of(wood("PINE", 10 + round, "1.00"), wood("PINE", 20 + round, "4.00")));
+            store.merge("OAK", List.of(wood("OAK", round, round + ".00")));
+        }
+        assertTrue(Files.exists(directory.resolve("segment-1.seg")));
+        assertTrue(Files.exists(directory.resolve("segment-2.seg")));
+
+        List<String> rows = new ArrayList<>();
+        store.forEachByTypesSorted(List.of("PINE", "MAPLE", "OAK", "PINE"),
+                (type, id, cents) -> rows.add(type + ":" + id + ":" + cents));
+
+        assertEquals(List.of("OAK:3:300", "OAK:2:200", "OAK:1:100", "OAK:0:0",
+                "PINE:20:400", "PINE:21:400", "PINE:22:400", "PINE:23:400",
+                "PINE:10:100", "PINE:11:100", "PINE:12:100", "PINE:13:100"), rows);
+    }
+
+    @Test
+    void testStagedUploadCountsAndMergesChangedRows() {
+        store.merge("OAK", List.of(wood("OAK", 1, "1.00"), wood("OAK", 2, "2.00")));
+
+        try (WoodStore.StagedUpload upload = store.stage("OAK")) {
+            upload.stage(new long[]{3, 2, 1}, new long[]{300, 250, 100}, 3);
+            upload.stage(new long[]{3}, new long[]{300}, 1);
+
+            assertEquals(Optional.empty(), upload.findConflict());
+            assertEquals(3, upload.count());
+            assertEquals(1, upload.countInserts());
+            assertEquals(1, upload.countUpdates());
+            upload.merge();
+        }
+
+        PriceSnapshot snapshot = store.findPriceSnapshot("OAK");
+        assertEquals(3, snapshot.size());
+        assertEquals(250, snapshot.centsOf(2));
+        assertEquals(300, snapshot.centsOf(3));
+    }
+
+    @Test
+    void testStagedUploadReportsConflict() {
+        try (WoodStore.StagedUpload upload = store.stage("OAK")) {
+            upload.stage(new long[]{1, 2, 1}, new long[]{100, 200, 150}, 3);
+
+            assertEquals(Optional.of(1L), upload.findConflict());
+        }
+        assertTrue(store.findPricesByType("OAK").isEmpty());
+    }
+
+    @Test
+    void testDigestSurvivesReopenUntilTypeIsWritten() throws IOException {
+        store.merge("OAK", List.of(wood("OAK", 1, "1.00")));
+        store.saveUploadDigest("OAK", new UploadDigest("abc", 1));
+
+        reopen(100);
+        assertEquals(Optional.of(new UploadDigest("abc", 1)), store.findUploadDigest("OAK"));
+
+        store.merge("OAK", List.of(wood("OAK", 2, "2.00")));
+        assertFalse(store.findUploadDigest("OAK").isPresent());
+    }
+
+    @Test
+    void testWritesOfRolledBackTransactionAreDropped() throws IOException {
+        store.merge("OAK", List.of(wood("OAK", 1, "1.00")));
+        store.saveUploadDigest("OAK", new UploadDigest("abc", 1));
+
+        transactions().executeWithoutResult(status -> {
+            store.merge("OAK", List.of(wood("OAK", 1, "9.00")));
+            store.merge("OAK", new long[]{2}, new long[]{200}, 1);
+            try (WoodStore.StagedUpload upload = store.stage("OAK")) {
+                upload.stage(new long[]{3}, new long[]{300}, 1);
+                upload.merge();
+            }
+            store.deleteUploadDigests(List.of("OAK"));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(List.of(new WoodPrice(1, new BigDecimal("1.00"))), store.findPricesByType("OAK"));
+        assertEquals(Optional.of(new UploadDigest("abc", 1)), store.findUploadDigest("OAK"));
+        assertTrue(stagedFiles().isEmpty(), "The staged file must be deleted with the transaction");
+        reopen(100);
+        assertEquals(List.of(new WoodPrice(1, new BigDecimal("1.00"))), store.findPricesByType("OAK"));
+    }
+
+    @Test
+    void testWritesApplyOnceTransactionCommits() throws IOException {
+        transactions().executeWithoutResult(status -> {
+            store.merge("OAK", List.of(wood("OAK", 1, "1.00")));
+            try (WoodStore.StagedUpload upload = store.stage("OAK")) {
+                upload.stage(new long[]{2}, new long[]{200}, 1);
+                upload.merge();
+            }
+            store.saveUploadDigest("OAK", new UploadDigest("abc", 2));
+
+            assertTrue(store.findPricesByType("OAK").isEmpty());
+            assertEquals(1, stagedFiles().size());
+        });
+
+        assertEquals(List.of(new WoodPrice(2, new BigDecimal("2.00")), new WoodPrice(1, new BigDecimal("1.00"))),
+                store.findPricesByType("OAK"));
+        assertEquals(Optional.of(new UploadDigest("abc", 2)), store.findUploadDigest("OAK"));
+        assertTrue(stagedFiles().isEmpty());
+    }
+
+    private static TransactionTemplate transactions() {
+        return new TransactionTemplate(new DataSourceTransactionManager(
+                new DriverManagerDataSource("jdbc:h2:mem:log-store-tx;DB_CLOSE_DELAY=-1")));
+    }
+
+    private List<Path> stagedFiles() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("staged-")).toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private LogWoodStore open(int logCapacity) throws IOException {
+        StoreProperties properties = new StoreProperties();
+        properties.setPath(directory.toString());
+        properties.setLogCapacity(logCapacity);
+        return new LogWoodStore(properties);
+    }
+
+    private void reopen(int logCapacity) throws IOException {
+        store.close();
+        store = open(logCapacity);
+    }
+
+    private static Wood wood(String type, long id, String price) {
+        return new Wood(new WoodId(type, id), null, new BigDecimal(price));
+    }
+}
@@ -0,0 +1,189 @@
+package com.hln.challenge.service;
+
+import com.hln.challenge.config.UploadProperties;
+import com.hln.challenge.exception.BadRequestException;
+import com.hln.challenge.service.dto.BulkUploadResult;
+import com.hln.challenge.service.dto.TypeUploadResult;
+import com.hln.challenge.service.dto.UploadResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class BulkUploadServiceTest {
+
+    @Mock
+    private WoodService woodService;
+
+    private final UploadProperties uploadProperties = new UploadProperties();
+
+    private BulkUploadService bulkUploadService;
+
+    private AutoCloseable closeable;
+
+    @BeforeEach
+    void setUp() {
+        closeable = MockitoAnnotations.openMocks(this);
+        bulkUploadService = new BulkUploadService(woodService, uploadProperties);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        closeable.close();
+    }
+
+    @Test
+    void testBadFileFailsOnlyItsType() {
+        MockMultipartFile oak = file("OAK", "oak.tdf", "1\t$10.00\n");
+        MockMultipartFile pine = file("PINE", "pine.tdf", "1\tbad\n");
+        when(woodService.ingestFileUpload("OAK", oak)).thenReturn(new UploadResult("OAK", null, 1, 0, 0));
+        when(woodService.ingestFileUpload("PINE", pine)).thenThrow(new BadRequestException("Error parsing file"));
+        MultiValueMap<String, MultipartFile> parts = new LinkedMultiValueMap<>();
+        parts.add("OAK", oak);
+        parts.add("PINE", pine);
+
+        BulkUploadResult result = bulkUploadService.processBulkUpload(parts);
+
+        assertEquals(2, result.getResults().size());
+        TypeUploadResult oakResult = result.getResults().get(0);
+        assertEquals("OAK", oakResult.getType());
+        assertTrue(oakResult.isSuccess());
+        assertEquals(1, oakResult.getInserted());
+        TypeUploadResult pineResult = result.getResults().get(1);
+        assertEquals("PINE", pineResult.getType());
+        assertFalse(pineResult.isSuccess());
+        assertEquals("Error parsing file", pineResult.getError());
+    }
+
+    @Test
+    void testZipEntriesAreUploadedPerType() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("feeds/MAPLE.tdf"));
+            zip.write("3\t$15.00\n".getBytes(StandardCharsets.US_ASCII));
+            zip.putNextEntry(new ZipEntry("BIRCH"));
+            zip.write("4\t$16.00\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        when(woodService.processFileUpload(eq("MAPLE"), any(Path.class))).thenAnswer(invocation -> {
+            assertEquals("3\t$15.00\n", Files.readString(invocation.getArgument(1)));
+            return new UploadResult("MAPLE", null, 1, 0, 0);
+        });
+        when(woodService.processFileUpload(eq("BIRCH"), any(Path.class))).thenReturn(new UploadResult("BIRCH", null, 0, 1, 0));
+        MultiValueMap<String, MultipartFile> parts = new LinkedMultiValueMap<>();
+        parts.add("files", new MockMultipartFile("files", "feeds.zip", "application/zip", bytes.toByteArray()));
+
+        BulkUploadResult result = bulkUploadService.processBulkUpload(parts);
+
+        assertEquals(2, result.getResults().size());
+        assertTrue(result.getResults().stream().allMatch(TypeUploadResult::isSuccess));
+        assertEquals("MAPLE", result.getResults().get(0).getType());
+        assertEquals("BIRCH", result.getResults().get(1).getType());
+    }
+
+    @Test
+    void testZipEntryNamesAreSplitWithoutPathParsing() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            // Path.of rejects the NUL, and would keep the backslashes as part of the name on Linux
+            zip.putNextEntry(new ZipEntry("odd\u0000dir/OAK.tdf"));
+            zip.write("1\t$10.00\n".getBytes(StandardCharsets.US_ASCII));
+            zip.putNextEntry(new ZipEntry("windows\\feeds\\PINE.tdf"));
+            zip.write("2\t$12.00\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        when(woodService.processFileUpload(any(), any(Path.class)))
+                .thenAnswer(invocation -> new UploadResult(invocation.getArgument(0), null, 1, 0, 0));
+        MultiValueMap<String, MultipartFile> parts = new LinkedMultiValueMap<>();
+        parts.add("files", new MockMultipartFile("files", "feeds.zip", "application/zip", bytes.toByteArray()));
+
+        BulkUploadResult result = bulkUploadService.processBulkUpload(parts);
+
+        assertEquals(2, result.getResults().size());
+        assertEquals("OAK", result.getResults().get(0).getType());
+        assertEquals("PINE", result.getResults().get(1).getType());
+    }
+
+    @Test
+    void testCorruptZipFailsOnlyItsOwnPart() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("MAPLE.tdf"));
+            zip.write("3\t$15.00\n".getBytes(StandardCharsets.US_ASCII));
+            zip.putNextEntry(new ZipEntry("BIRCH.tdf"));
+            zip.write("4\t$16.00\n".repeat(1000).getBytes(StandardCharsets.US_ASCII));
+        }
+        // Cut off inside the second entry's compressed data
+        byte[] truncated = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 150);
+        when(woodService.processFileUpload(eq("MAPLE"), any(Path.class))).thenReturn(new UploadResult("MAPLE", null, 1, 0, 0));
+        when(woodService.ingestFileUpload(eq("OAK"), any())).thenReturn(new UploadResult("OAK", null, 1, 0, 0));
+        MultiValueMap<String, MultipartFile> parts = new LinkedMultiValueMap<>();
+        parts.add("files", new MockMultipartFile("files", "feeds.zip", "application/zip", truncated));
+        parts.add("OAK", file("OAK", "oak.tdf", "1\t$10.00\n"));
+
+        BulkUploadResult result = bulkUploadService.processBulkUpload(parts);
+
+        assertEquals(3, result.getResults().size());
+        assertEquals("MAPLE", result.getResults().get(0).getType());
+        assertTrue(result.getResults().get(0).isSuccess());
+        TypeUploadResult zipResult = result.getResults().get(1);
+        assertEquals("feeds.zip", zipResult.getType());
+        assertFalse(zipResult.isSuccess());
+        assertTrue(zipResult.getError().startsWith("Error reading zip file"));
+        assertTrue(result.getResults().get(2).isSuccess());
+        verify(woodService, never()).processFileUpload(eq("BIRCH"), any(Path.class));
+    }
+
+    @Test
+    void testRejectsZipsOverTheEntryOrByteBudget() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("MAPLE.tdf"));
+            zip.write("3\t$15.00\n".repeat(100).getBytes(StandardCharsets.US_ASCII));
+            zip.putNextEntry(new ZipEntry("BIRCH.tdf"));
+            zip.write("4\t$16.00\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        MultiValueMap<String, MultipartFile> parts = new LinkedMultiValueMap<>();
+        parts.add("files", new MockMultipartFile("files", "feeds.zip", "application/zip", bytes.toByteArray()));
+
+        uploadProperties.setMaxZipEntries(1);
+        assertThrows(BadRequestException.class, () -> bulkUploadService.processBulkUpload(parts));
+
+        uploadProperties.setMaxZipEntries(2);
+        uploadProperties.setMaxZipBytes(500);
+        assertThrows(BadRequestException.class, () -> bulkUploadService.processBulkUpload(parts));
+        verifyNoInteractions(woodService);
+    }
+
+    @Test
+    void testRejectsEmptyAndDuplicateUploads() {
+        assertThrows(BadRequestException.class, () -> bulkUploadService.processBulkUpload(new LinkedMultiValueMap<>()));
+
+        MultiValueMap<String, MultipartFile> parts = new LinkedMultiValueMap<>();
+        parts.add("OAK", file("OAK", "a.tdf", "1\t$1.00\n"));
+        parts.add("OAK", file("OAK", "b.tdf", "2\t$2.00\n"));
+        assertThrows(BadRequestException.class, () -> bulkUploadService.processBulkUpload(parts));
+        verifyNoInteractions(woodService);
+    }
+
+    private static MockMultipartFile file(String name, String filename, String content) {
+        return new MockMultipartFile(name, filename, "text/plain", content.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,173 @@
+package com.hln.challenge.service;
+
+import com.hln.challenge.config.UploadProperties;
+import com.hln.challenge.exception.BadRequestException;
+import com.hln.challenge.exception.NotFoundException;
+import com.hln.challenge.exception.TooManyRequestsException;
+import com.hln.challenge.service.dto.UploadJobStatus;
+import com.hln.challenge.service.dto.UploadJobStatus.State;
+import com.hln.challenge.service.dto.UploadResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+public class UploadJobServiceTest {
+
+    @Mock
+    private WoodService woodService;
+
+    private UploadJobService uploadJobService;
+
+    private AutoCloseable closeable;
+
+    @BeforeEach
+    void setUp() {
+        closeable = MockitoAnnotations.openMocks(this);
+        UploadProperties properties = new UploadProperties();
+        properties.setJobWorkers(1);
+        properties.setJobQueueCapacity(1);
+        uploadJobService = new UploadJobService(woodService, properties);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        uploadJobService.shutdown();
+        closeable.close();
+    }
+
+    @Test
+    void testJobReportsProgressAndOutcome() throws Exception {
+        Path[] spooled = new Path[1];
+        when(woodService.processFileUpload(eq("OAK"), any(Path.class), any(LongConsumer.class))).thenAnswer(call -> {
+            spooled[0] = call.getArgument(1);
+            assertEquals("1\t$10.00\n2\t$20.00\n", Files.readString(spooled[0]));
+            call.<LongConsumer>getArgument(2).accept(2);
+            return new UploadResult("OAK", null, 1, 1, 0);
+        });
+
+        UploadJobStatus queued = uploadJobService.submit("OAK", file("1\t$10.00\n2\t$20.00\n"));
+        UploadJobStatus done = awaitFinished(queued.getId());
+
+        assertEquals("OAK", done.getType());
+        assertEquals(State.SUCCEEDED, done.getState());
+        assertEquals(2, done.getRowsParsed());
+        assertEquals(1, done.getInserted());
+        assertEquals(1, done.getUpdated());
+        assertNull(done.getError());
+        assertFalse(Files.exists(spooled[0]), "The spool file must be deleted once the job is done");
+    }
+
+    @Test
+    void testRejectedFileFailsTheJob() throws Exception {
+        when(woodService.processFileUpload(eq("OAK"), any(Path.class), any(LongConsumer.class)))
+                .thenThrow(new BadRequestException("Invalid TDF at line 1, column 3: expected a price"));
+
+        UploadJobStatus done = awaitFinished(uploadJobService.submit("OAK", file("1\tx\n")).getId());
+
+        assertEquals(State.FAILED, done.getState());
+        assertEquals("Invalid TDF at line 1, column 3: expected a price", done.getError());
+    }
+
+    @Test
+    void testFullQueueIsRejected() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(woodService.processFileUpload(eq("OAK"), any(Path.class), any(LongConsumer.class))).thenAnswer(call -> {
+            started.countDown();
+            release.await();
+            return new UploadResult("OAK", null, 0, 0, 0);
+        });
+
+        // One job holds the only worker and one waits in the queue, so a third does not fit
+        UploadJobStatus running = uploadJobService.submit("OAK", file("1\t$1.00\n"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        UploadJobStatus waiting = uploadJobService.submit("OAK", file("1\t$1.00\n"));
+        assertEquals(State.QUEUED, uploadJobService.getStatus(waiting.getId()).getState());
+        assertThrows(TooManyRequestsException.class, () -> uploadJobService.submit("OAK", file("1\t$1.00\n")));
+
+        release.countDown();
+        assertEquals(State.SUCCEEDED, awaitFinished(running.getId()).getState());
+        assertEquals(State.SUCCEEDED, awaitFinished(waiting.getId()).getState());
+    }
+
+    @Test
+    void testShutdownDeletesTheSpoolsOfQueuedJobs() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        Path[] running = new Path[1];
+        when(woodService.processFileUpload(eq("OAK"), any(Path.class), any(LongConsumer.class))).thenAnswer(call -> {
+            running[0] = call.getArgument(1);
+            started.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException("Interrupted", e);
+            }
+            return new UploadResult("OAK", null, 0, 0, 0);
+        });
+        UploadJobStatus first = uploadJobService.submit("OAK", file("1\t$1.00\n"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        UploadJobStatus queued = uploadJobService.submit("OAK", file("7\t$7.77\n"));
+        Path queuedSpool = spoolHolding(running[0].getParent(), "7\t$7.77\n");
+
+        uploadJobService.shutdown();
+
+        assertEquals(State.FAILED, uploadJobService.getStatus(queued.getId()).getState());
+        assertFalse(Files.exists(queuedSpool), "A queued job's spool file must be deleted on shutdown");
+        // The running job is interrupted and cleans up after itself
+        assertEquals(State.FAILED, awaitFinished(first.getId()).getState());
+        assertFalse(Files.exists(running[0]));
+    }
+
+    @Test
+    void testUnknownJobIsNotFound() {
+        assertThrows(NotFoundException.class, () -> uploadJobService.getStatus("missing"));
+    }
+
+    private UploadJobStatus awaitFinished(String id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            UploadJobStatus status = uploadJobService.getStatus(id);
+            if (status.getState() == State.SUCCEEDED || status.getState() == State.FAILED) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        return fail("Upload job " + id + " did not finish");
+    }
+
+    private static Path spoolHolding(Path directory, String content) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("wood-upload-"))
+                    .filter(path -> {
+                        try {
+                            return Files.readString(path).equals(content);
+                        } catch (IOException e) {
+                            return false;
+                        }
+                    })
+                    .findFirst()
+                    .orElseThrow();
+        }
+    }
+
+    private static MockMultipartFile file(String content) {
+        return new MockMultipartFile("file", "oak.tdf", "text/plain", content.getBytes(StandardCharsets.UTF_8));
+    }
+}
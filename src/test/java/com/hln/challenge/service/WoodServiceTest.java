@@ -1,24 +1,52 @@
 package com.hln.challenge.service;
 
+import com.hln.challenge.config.BundleCacheProperties;
+import com.hln.challenge.config.UploadProperties;
 import com.hln.challenge.exception.BadRequestException;
+import com.hln.challenge.exception.NotFoundException;
 import com.hln.challenge.persistence.models.Wood;
 import com.hln.challenge.persistence.models.WoodId;
 import com.hln.challenge.persistence.models.WoodType;
 import com.hln.challenge.persistence.repository.WoodRepository;
 import com.hln.challenge.persistence.repository.WoodTypeRepository;
+import com.hln.challenge.persistence.store.PriceSnapshot;
+import com.hln.challenge.persistence.store.TypedPriceRowCallback;
+import com.hln.challenge.persistence.store.UploadDigest;
+import com.hln.challenge.persistence.store.WoodStore;
+import com.hln.challenge.persistence.store.WoodStore.StagedUpload;
+import com.hln.challenge.service.bundle.PriceColumn;
+import com.hln.challenge.service.cache.BundleResultCache;
 import com.hln.challenge.service.dto.Bundle;
+import com.hln.challenge.service.dto.BundlePage;
+import com.hln.challenge.service.dto.UploadResult;
+import com.hln.challenge.service.index.WoodPriceIndex;
+import com.hln.challenge.service.index.WoodTypeRegistry;
+import com.hln.challenge.service.metrics.WoodMetrics;
+import com.hln.challenge.service.parser.ParallelTdfParser.ParsedRows;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.mock.web.MockMultipartFile;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -39,10 +67,23 @@ public class WoodServiceTest {
     @Mock
     private WoodTransactionalService woodTransactionalService;
 
+    @Mock
+    private WoodPriceIndex priceIndex;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private WoodStore woodStore;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final WoodMetrics metrics = new WoodMetrics(meterRegistry);
+    private final BundleResultCache bundleCache = new BundleResultCache(new BundleCacheProperties(), meterRegistry);
+
     @BeforeEach
     void setup() {
         closeable = MockitoAnnotations.openMocks(this);
-        woodService = new WoodService(woodRepository, woodTypeRepository, woodTransactionalService);
+        woodService = new WoodService(woodStore, new WoodTypeRegistry(woodTypeRepository), woodTransactionalService, priceIndex, new UploadProperties(), metrics, bundleCache);
     }
 
     @AfterEach
@@ -75,24 +116,13 @@ public class WoodServiceTest {
 
     @Test
     void testGetBundles() {
-        // Create WoodType and Wood objects for "OAK" and "PINE"
-        WoodType oakType = new WoodType("OAK");
-        WoodId oakId = new WoodId("OAK", 1L);
-        Wood oakWood = new Wood(oakId, oakType, new BigDecimal("10.0"));
-
-        WoodType pineType = new WoodType("PINE");
-        WoodId pineId = new WoodId("PINE", 2L);
-        Wood pineWood = new Wood(pineId, pineType, new BigDecimal("15.0"));
-
         // Setup mock behavior for woodTypeRepository
         when(woodTypeRepository.existsById("OAK")).thenReturn(true);
         when(woodTypeRepository.existsById("PINE")).thenReturn(true);
 
-        // Setup mock behavior for woodRepository
-        when(woodRepository.findByWoodType_TypeAndPriceBetween(eq("OAK"), any(), any()))
-                .thenReturn(Collections.singletonList(oakWood));
-        when(woodRepository.findByWoodType_TypeAndPriceBetween(eq("PINE"), any(), any()))
-                .thenReturn(Collections.singletonList(pineWood));
+        // Setup mock behavior for the price index: one OAK at 10.00 and one PINE at 15.00
+        when(priceIndex.column("OAK")).thenReturn(PriceColumn.of("OAK", new long[]{1}, new long[]{1000}));
+        when(priceIndex.column("PINE")).thenReturn(PriceColumn.of("PINE", new long[]{2}, new long[]{1500}));
 
         // Call the method with a format that includes both types
         List<Bundle> result = woodService.getBundles("OAK,PINE", null, null);
@@ -100,8 +130,144 @@ public class WoodServiceTest {
         // Assertions
         assertNotNull(result);
         assertFalse(result.isEmpty());
-        assertEquals(2, result.size()); // Expect 2 bundles (one for each type)
+        assertEquals(1, result.size()); // One wood per type gives a single OAK-PINE bundle
+        assertEquals("1-2", result.getFirst().getId());
+        assertEquals(0, new BigDecimal("25.0").compareTo(result.getFirst().getPrice()));
+
+        // Every stage ran once and the bundle count was recorded
+        assertEquals(1, meterRegistry.get("wood.bundle.stage").tag("stage", "format").timer().count());
+        assertEquals(1, meterRegistry.get("wood.bundle.stage").tag("stage", "fetch").timer().count());
+        assertEquals(1, meterRegistry.get("wood.bundle.stage").tag("stage", "combine").timer().count());
+        assertEquals(1.0, meterRegistry.get("wood.bundle.count").summary().totalAmount());
+    }
 
+    @Test
+    void testGetBundlesIsCachedUntilTypeChanges() {
+        when(woodTypeRepository.existsById(anyString())).thenReturn(true);
+        when(priceIndex.column("OAK")).thenReturn(PriceColumn.of("OAK", new long[]{1}, new long[]{1000}));
+        when(priceIndex.column("PINE")).thenReturn(PriceColumn.of("PINE", new long[]{2}, new long[]{1500}));
+
+        List<Bundle> first = woodService.getBundles("OAK,PINE", null, 30.0);
+        // Same types and bounds after normalization
+        assertSame(first, woodService.getBundles(" OAK, PINE", null, 30.004));
+        verify(priceIndex, times(1)).column("OAK");
+
+        // An upload to PINE commits: its generation moves and the next request recombines the new prices
+        when(priceIndex.generation("PINE")).thenReturn(1L);
+        when(priceIndex.column("PINE")).thenReturn(PriceColumn.of("PINE", new long[]{2}, new long[]{500}));
+        List<Bundle> refreshed = woodService.getBundles("OAK,PINE", null, 30.0);
+
+        assertEquals(0, new BigDecimal("15.00").compareTo(refreshed.getFirst().getPrice()));
+        assertEquals(1, bundleCache.stats().hits());
+        assertEquals(2, bundleCache.stats().misses());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void testBundleETagChangesOnlyWithRequestOrGeneration() {
+        when(woodTypeRepository.existsById(anyString())).thenReturn(true);
+
+        String eTag = woodService.bundleETag("OAK,PINE", null, 30.0, "list");
+        assertTrue(eTag.matches("\"[0-9a-f]{32}\""));
+        assertEquals(eTag, woodService.bundleETag(" OAK, PINE", null, 30.004, "list"));
+        assertNotEquals(eTag, woodService.bundleETag("OAK,PINE", null, 30.0, "count"));
+        assertNotEquals(eTag, woodService.bundleETag("OAK,PINE", 1.0, 30.0, "list"));
+
+        when(priceIndex.generation("PINE")).thenReturn(1L);
+        assertNotEquals(eTag, woodService.bundleETag("OAK,PINE", null, 30.0, "list"));
+        verify(priceIndex, never()).column(anyString());
+    }
+
+    @Test
+    void testGetBundlePageResumesFromCursor() {
+        when(woodTypeRepository.existsById("OAK")).thenReturn(true);
+        when(priceIndex.column("OAK")).thenReturn(PriceColumn.of("OAK", new long[]{1, 2, 3}, new long[]{1000, 3000, 2000}));
+
+        BundlePage first = woodService.getBundlePage("OAK", null, null, 2, null);
+        assertEquals(Arrays.asList("2", "3"), first.getBundles().stream().map(Bundle::getId).toList());
+        assertNotNull(first.getNextCursor());
+
+        BundlePage second = woodService.getBundlePage("OAK", null, null, 2, first.getNextCursor());
+        assertEquals(Collections.singletonList("1"), second.getBundles().stream().map(Bundle::getId).toList());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void testGetBundlePageRejectsBadCursor() {
+        when(woodTypeRepository.existsById("OAK")).thenReturn(true);
+
+        assertThrows(BadRequestException.class, () -> woodService.getBundlePage("OAK", null, null, 2, "not a cursor"));
+    }
+
+    @Test
+    void testCountBundles() {
+        when(woodTypeRepository.existsById(anyString())).thenReturn(true);
+        when(priceIndex.column("OAK")).thenReturn(PriceColumn.of("OAK", new long[]{1, 2}, new long[]{1000, 2000}));
+        when(priceIndex.column("PINE")).thenReturn(PriceColumn.of("PINE", new long[]{3, 4}, new long[]{500, 1500}));
+
+        // Bundle prices: 35, 25, 25, 15
+        assertEquals(2, woodService.countBundles("OAK,PINE", 20.0, 30.0).getTotal());
+        assertEquals(4, woodService.countBundles("OAK,PINE", null, null).getTotal());
+    }
+
+    @Test
+    void testSearchBundles() {
+        when(woodTypeRepository.existsById(anyString())).thenReturn(true);
+        when(priceIndex.column("OAK")).thenReturn(PriceColumn.of("OAK", new long[]{1, 2}, new long[]{1000, 2000}));
+        when(priceIndex.column("PINE")).thenReturn(PriceColumn.of("PINE", new long[]{3, 4}, new long[]{500, 1500}));
+
+        // Bundle prices: 35 (2-4), 25 (1-4, 2-3), 15 (1-3)
+        assertEquals(Arrays.asList("2-4", "1-4", "2-3"), woodService.searchBundles("OAK,PINE", 32.0, null, null, 3)
+                .stream().map(Bundle::getId).toList());
+        // Without a target: the most expensive under the budget
+        assertEquals(Arrays.asList("1-4", "2-3"), woodService.searchBundles("OAK,PINE", null, null, 30.0, 2)
+                .stream().map(Bundle::getId).toList());
+        assertThrows(BadRequestException.class, () -> woodService.searchBundles("OAK,PINE", 32.0, null, null, 0));
+    }
+
+    @Test
+    void testCompactBundleIdsDecodeUntilTypeIsRepriced() {
+        when(woodTypeRepository.existsById(anyString())).thenReturn(true);
+        WoodPriceIndex index = new WoodPriceIndex(woodStore);
+        when(woodStore.findAllTypes()).thenReturn(List.of("OAK", "PINE"));
+        doAnswer(invocation -> {
+            TypedPriceRowCallback callback = invocation.getArgument(1);
+            callback.row("OAK", 1L, 1000);
+            callback.row("OAK", 2L, 2000);
+            callback.row("PINE", 3L, 500);
+            return null;
+        }).when(woodStore).forEachByTypesSorted(eq(List.of("OAK", "PINE")), any());
+        index.rebuild();
+        woodService = new WoodService(woodStore, new WoodTypeRegistry(woodTypeRepository), woodTransactionalService, index, new UploadProperties(), metrics, bundleCache);
+
+        List<Bundle> bundles = woodService.getBundles("OAK,PINE", null, null, true);
+        Bundle cheapest = woodService.getBundle(bundles.get(1).getId());
+
+        assertEquals(bundles.get(1), cheapest);
+        assertNotSame(bundles.get(1), cheapest);
+        assertSame(bundles, woodService.getBundles("OAK,PINE", null, null, true));
+        assertThrows(UnsupportedOperationException.class, () -> cheapest.getBundle().clear());
+        // MAPLE is registered but has never been indexed, so it has no number to encode
+        assertThrows(NotFoundException.class, () -> woodService.getBundles("OAK,MAPLE", null, null, true));
+        assertTrue(woodService.getBundles("OAK,MAPLE", null, null, false).isEmpty());
+        assertEquals(1L, cheapest.getBundle().get(0).getId());
+        assertEquals(0, new BigDecimal("15.00").compareTo(cheapest.getPrice()));
+
+        // Re-pricing PINE makes every id that includes it stale
+        doAnswer(invocation -> {
+            invocation.<TypedPriceRowCallback>getArgument(1).row("PINE", 3L, 600);
+            return null;
+        }).when(woodStore).forEachByTypesSorted(eq(Set.of("PINE")), any());
+        index.refresh(Set.of("PINE"));
+        assertThrows(NotFoundException.class, () -> woodService.getBundle(bundles.get(1).getId()));
+        assertThrows(BadRequestException.class, () -> woodService.getBundle("1-3"));
+    }
+
+    @Test
+    void testCountBundlesRejectsDuplicateTypes() {
+        when(woodTypeRepository.existsById(anyString())).thenReturn(true);
+
+        assertThrows(BadRequestException.class, () -> woodService.countBundles("OAK,OAK", null, null));
     }
 
     @Test
@@ -122,6 +288,74 @@ public class WoodServiceTest {
         assertEquals("OAK", result.getFirst().getWoodType().getType());
     }
 
+    @Test
+    void testProcessFileUploadParsesLargeFilesInParallel() {
+        MockMultipartFile file = new MockMultipartFile("file", "filename.txt", "text/plain",
+                "id\tprice\n2\t$20.00\n1\t$10.0\n2\t$20\n".getBytes());
+        when(woodTypeRepository.findById("OAK")).thenReturn(Optional.of(new WoodType("OAK")));
+        UploadProperties properties = new UploadProperties();
+        properties.setParallelParseThreshold(0);
+        woodService = new WoodService(woodStore, new WoodTypeRegistry(woodTypeRepository), woodTransactionalService, priceIndex, properties, metrics, bundleCache);
+
+        when(woodTransactionalService.upsertParsed(eq("OAK"), any(), anyString())).thenReturn(new UploadResult("OAK", List.of(), 2, 0, 0));
+
+        woodService.processFileUpload("OAK", file);
+        verify(woodStore).findPricesByType("OAK");
+
+        assertEquals(2.0, meterRegistry.get("wood.upload.rows").tags("type", "OAK", "outcome", "parsed").counter().count());
+        assertEquals(2.0, meterRegistry.get("wood.upload.rows").tags("type", "OAK", "outcome", "inserted").counter().count());
+        // Identical duplicates are already collapsed and the rows go on as primitive arrays sorted by id
+        verify(woodTransactionalService).upsertParsed(eq("OAK"), argThat(rows -> rows.size() == 2
+                && Arrays.equals(rows.ids(), new long[]{1, 2}) && Arrays.equals(rows.cents(), new long[]{1000, 2000})),
+                eq(sha256("id\tprice\n2\t$20.00\n1\t$10.0\n2\t$20\n")));
+        verify(woodTransactionalService, never()).upsertAll(anyString(), any(), any());
+    }
+
+    @Test
+    void testProcessFileUploadSkipsFileIdenticalToLastAccepted() {
+        String content = "1\t$10.00\n2\t$20.00\n";
+        MockMultipartFile file = new MockMultipartFile("file", "filename.txt", "text/plain", content.getBytes());
+        when(woodTypeRepository.findById("OAK")).thenReturn(Optional.of(new WoodType("OAK")));
+        when(woodStore.findUploadDigest("OAK")).thenReturn(Optional.of(new UploadDigest(sha256(content), 2)));
+
+        UploadResult result = woodService.processFileUpload("OAK", file);
+
+        assertEquals(0, result.getInserted());
+        assertEquals(0, result.getUpdated());
+        assertEquals(2, result.getUnchanged());
+        verify(woodTransactionalService, never()).upsertAll(anyString(), any(), any());
+        verify(woodStore).findPricesByType("OAK");
+        assertEquals(1.0, meterRegistry.get("wood.upload.files").tags("type", "OAK", "outcome", "skipped").counter().count());
+        assertEquals(2.0, meterRegistry.get("wood.upload.rows").tags("type", "OAK", "outcome", "unchanged").counter().count());
+    }
+
+    @Test
+    void testProcessFileUploadDiffsChangedFile() {
+        MockMultipartFile file = new MockMultipartFile("file", "filename.txt", "text/plain", "1\t$11.00\n".getBytes());
+        when(woodTypeRepository.findById("OAK")).thenReturn(Optional.of(new WoodType("OAK")));
+        when(woodStore.findUploadDigest("OAK")).thenReturn(Optional.of(new UploadDigest(sha256("1\t$10.00\n"), 1)));
+        when(woodTransactionalService.upsertAll(eq("OAK"), any(), anyString())).thenReturn(new UploadResult("OAK", null, 0, 1, 0));
+
+        UploadResult result = woodService.processFileUpload("OAK", file);
+
+        assertEquals(1, result.getUpdated());
+        verify(woodTransactionalService).upsertAll(eq("OAK"), argThat(woods -> woods.size() == 1), eq(sha256("1\t$11.00\n")));
+        assertEquals(1.0, meterRegistry.get("wood.upload.files").tags("type", "OAK", "outcome", "processed").counter().count());
+    }
+
+    @Test
+    void testIngestFileUploadReturnsCountsWithoutReadingBack() {
+        MockMultipartFile file = new MockMultipartFile("file", "filename.txt", "text/plain", "1\t$11.00\n".getBytes());
+        when(woodTypeRepository.findById("OAK")).thenReturn(Optional.of(new WoodType("OAK")));
+        when(woodTransactionalService.upsertAll(eq("OAK"), any(), anyString())).thenReturn(new UploadResult("OAK", null, 1, 0, 0));
+
+        UploadResult result = woodService.ingestFileUpload("OAK", file);
+
+        assertEquals(1, result.getInserted());
+        assertNull(result.getWoods());
+        verify(woodStore, never()).findPricesByType(anyString());
+    }
+
     @Test
     void testParseFileThrowsException() {
         // Mock file with invalid format (e.g., missing tab character or invalid number format)
@@ -146,22 +380,22 @@ public class WoodServiceTest {
         // Create a list of Wood objects
         List<Wood> woods = Collections.singletonList(wood);
 
-        // Mock the woodRepository
-        WoodRepository woodRepository = mock(WoodRepository.class);
-        when(woodRepository.save(any(Wood.class))).thenReturn(wood);
-
         // Mock the woodTypeRepository
         WoodTypeRepository woodTypeRepository = mock(WoodTypeRepository.class);
         when(woodTypeRepository.existsById(oakType.getType())).thenReturn(true);
+        // Nothing stored yet, so the wood is new
+        when(woodStore.findPriceSnapshot("OAK")).thenReturn(snapshot(new long[0], new long[0]));
 
         // Create an instance of WoodTransactionalService with the mocked repositories
-        WoodTransactionalService woodTransactionalService = new WoodTransactionalService(woodRepository, woodTypeRepository);
+        WoodTransactionalService woodTransactionalService = new WoodTransactionalService(woodStore, new WoodTypeRegistry(woodTypeRepository), new UploadProperties(), eventPublisher, metrics);
 
         // Call the validateAndSave method
         List<Wood> result = woodTransactionalService.validateAndSave(woods);
 
-        // Verify that save method was called
-        verify(woodRepository, times(woods.size())).save(any(Wood.class));
+        // Verify that the wood was merged and the change was announced
+        verify(woodStore).merge(eq("OAK"), argThat(changed -> changed.size() == woods.size()));
+        verify(woodStore).deleteUploadDigests(Set.of("OAK"));
+        verify(eventPublisher).publishEvent(new WoodsChangedEvent(Set.of("OAK")));
 
         // Assertions
         assertNotNull(result);
@@ -169,6 +403,164 @@ public class WoodServiceTest {
     }
 
 
+    @Test
+    void testValidateAndSaveSkipsUnchangedRows() {
+        WoodType oakType = new WoodType("OAK");
+        List<Wood> woods = Arrays.asList(
+                new Wood(new WoodId("OAK", 1L), oakType, new BigDecimal("10.0")),
+                new Wood(new WoodId("OAK", 2L), oakType, new BigDecimal("20.00")));
+        when(woodTypeRepository.existsById("OAK")).thenReturn(true);
+        when(woodStore.findPriceSnapshot("OAK")).thenReturn(snapshot(new long[]{1, 2}, new long[]{1000, 2000}));
+
+        WoodTransactionalService service = new WoodTransactionalService(woodStore, new WoodTypeRegistry(woodTypeRepository), new UploadProperties(), eventPublisher, metrics);
+        List<Wood> result = service.validateAndSave(woods);
+
+        assertEquals(2, result.size());
+        verify(woodStore, times(1)).findPriceSnapshot("OAK");
+        verify(woodStore, never()).merge(anyString(), any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void testUpsertAllWritesOnlyChangedRows() {
+        WoodType oakType = new WoodType("OAK");
+        List<Wood> woods = Arrays.asList(
+                new Wood(new WoodId("OAK", 1L), oakType, new BigDecimal("10.00")),
+                new Wood(new WoodId("OAK", 2L), oakType, new BigDecimal("20.00")),
+                new Wood(new WoodId("OAK", 3L), oakType, new BigDecimal("30.0")),
+                new Wood(new WoodId("OAK", 3L), oakType, new BigDecimal("30.00")));
+        when(woodTypeRepository.existsById("OAK")).thenReturn(true);
+        // Stored: id 1 at 10.00 (unchanged) and id 2 at 25.00 (re-priced); id 3 is new
+        when(woodStore.findPriceSnapshot("OAK")).thenReturn(snapshot(new long[]{1, 2}, new long[]{1000, 2500}));
+
+        WoodTransactionalService service = new WoodTransactionalService(woodStore, new WoodTypeRegistry(woodTypeRepository), new UploadProperties(), eventPublisher, metrics);
+        UploadResult result = service.upsertAll("OAK", woods, "digest");
+
+        assertEquals(1, result.getInserted());
+        assertEquals(1, result.getUpdated());
+        assertEquals(1, result.getUnchanged());
+        // The stored values are read back by the service once the upload has committed
+        assertNull(result.getWoods());
+        verify(woodStore).merge(eq("OAK"), argThat(changed -> changed.size() == 2));
+        verify(eventPublisher).publishEvent(new WoodsChangedEvent(Set.of("OAK")));
+        verify(woodStore).saveUploadDigest("OAK", new UploadDigest("digest", 3));
+        // Locked before the stored prices are read, so a concurrent upload of the type cannot slip in between
+        InOrder order = inOrder(woodTypeRepository, woodStore);
+        order.verify(woodTypeRepository).findForUpdate("OAK");
+        order.verify(woodStore).findPriceSnapshot("OAK");
+        assertEquals(1, meterRegistry.get("wood.upload.stage").tags("stage", "persist", "type", "OAK").timer().count());
+    }
+
+    @Test
+    void testUpsertParsedMergesOnlyChangedRowsFromArrays() {
+        when(woodTypeRepository.existsById("OAK")).thenReturn(true);
+        // Stored: id 1 at 10.00 (unchanged) and id 2 at 25.00 (re-priced); id 3 is new
+        when(woodStore.findPriceSnapshot("OAK")).thenReturn(snapshot(new long[]{1, 2}, new long[]{1000, 2500}));
+        ParsedRows rows = new ParsedRows(new long[]{1, 2, 3}, new long[]{1000, 2000, 3000});
+
+        WoodTransactionalService service = new WoodTransactionalService(woodStore, new WoodTypeRegistry(woodTypeRepository), new UploadProperties(), eventPublisher, metrics);
+        UploadResult result = service.upsertParsed("OAK", rows, "digest");
+
+        assertEquals(1, result.getInserted());
+        assertEquals(1, result.getUpdated());
+        assertEquals(1, result.getUnchanged());
+        verify(woodStore).merge(eq("OAK"), argThat((long[] ids) -> ids[0] == 2 && ids[1] == 3),
+                argThat((long[] cents) -> cents[0] == 2000 && cents[1] == 3000), eq(2));
+        verify(woodStore, never()).merge(anyString(), any());
+        verify(eventPublisher).publishEvent(new WoodsChangedEvent(Set.of("OAK")));
+        verify(woodStore).saveUploadDigest("OAK", new UploadDigest("digest", 3));
+    }
+
+    @Test
+    void testUpsertParsedRejectsIdZero() {
+        when(woodTypeRepository.existsById("OAK")).thenReturn(true);
+        ParsedRows rows = new ParsedRows(new long[]{0, 1}, new long[]{1000, 2000});
+
+        WoodTransactionalService service = new WoodTransactionalService(woodStore, new WoodTypeRegistry(woodTypeRepository), new UploadProperties(), eventPublisher, metrics);
+
+        assertThrows(BadRequestException.class, () -> service.upsertParsed("OAK", rows, "digest"));
+        verify(woodStore, never()).merge(anyString(), any(), any(), anyInt());
+    }
+
+    @Test
+    void testUpsertAllRejectsConflictingDuplicates() {
+        WoodType oakType = new WoodType("OAK");
+        List<Wood> woods = Arrays.asList(
+                new Wood(new WoodId("OAK", 1L), oakType, new BigDecimal("10.00")),
+                new Wood(new WoodId("OAK", 1L), oakType, new BigDecimal("11.00")));
+        when(woodTypeRepository.existsById("OAK")).thenReturn(true);
+
+        WoodTransactionalService service = new WoodTransactionalService(woodStore, new WoodTypeRegistry(woodTypeRepository), new UploadProperties(), eventPublisher, metrics);
+
+        assertThrows(BadRequestException.class, () -> service.upsertAll("OAK", woods, "digest"));
+        verify(woodStore, never()).merge(anyString(), any());
+    }
+
+    @Test
+    void testIngestChunkedStagesInChunksAndMerges() {
+        when(woodTypeRepository.existsById("OAK")).thenReturn(true);
+        StagedUpload upload = mock(StagedUpload.class);
+        when(woodStore.stage("OAK")).thenReturn(upload);
+        when(upload.findConflict()).thenReturn(Optional.empty());
+        when(upload.count()).thenReturn(3);
+        when(upload.countInserts()).thenReturn(2);
+        when(upload.countUpdates()).thenReturn(0);
+        UploadProperties properties = new UploadProperties();
+        properties.setChunkSize(2);
+        InputStream in = new ByteArrayInputStream("id\tprice\n1\t$10.00\n2\t$20.00\n3\t$30.00\n".getBytes(StandardCharsets.UTF_8));
+
+        WoodTransactionalService service = new WoodTransactionalService(woodStore, new WoodTypeRegistry(woodTypeRepository), properties, eventPublisher, metrics);
+        UploadResult result = service.ingestChunked("OAK", in, "digest");
+
+        assertEquals(2, result.getInserted());
+        assertEquals(0, result.getUpdated());
+        assertEquals(1, result.getUnchanged());
+        // One full chunk of two rows, then the remaining row
+        verify(upload).stage(any(), any(), eq(2));
+        verify(upload).stage(any(), any(), eq(1));
+        verify(upload).merge();
+        verify(upload).close();
+        verify(woodStore).saveUploadDigest("OAK", new UploadDigest("digest", 3));
+        verify(eventPublisher).publishEvent(new WoodsChangedEvent(Set.of("OAK")));
+    }
+
+    @Test
+    void testIngestChunkedRejectsConflictingDuplicates() {
+        when(woodTypeRepository.existsById("OAK")).thenReturn(true);
+        StagedUpload upload = mock(StagedUpload.class);
+        when(woodStore.stage("OAK")).thenReturn(upload);
+        when(upload.findConflict()).thenReturn(Optional.of(1L));
+        InputStream in = new ByteArrayInputStream("1\t$10.00\n1\t$11.00\n".getBytes(StandardCharsets.UTF_8));
+
+        WoodTransactionalService service = new WoodTransactionalService(woodStore, new WoodTypeRegistry(woodTypeRepository), new UploadProperties(), eventPublisher, metrics);
+
+        assertThrows(BadRequestException.class, () -> service.ingestChunked("OAK", in, "digest"));
+        verify(upload, never()).merge();
+        verify(upload).close();
+    }
+
+    private static String sha256(String content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Answers from a map instead of stubbing: a when(...) here would nest inside the caller's when(...) and leave it
+    // unfinished
+    private static PriceSnapshot snapshot(long[] ids, long[] cents) {
+        Map<Long, Long> prices = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            prices.put(ids[i], cents[i]);
+        }
+        return mock(PriceSnapshot.class, invocation -> switch (invocation.getMethod().getName()) {
+            case "centsOf" -> prices.getOrDefault(invocation.<Long>getArgument(0), -1L);
+            case "size" -> prices.size();
+            default -> RETURNS_DEFAULTS.answer(invocation);
+        });
+    }
+
     // Testing Utility Functions
     @Test
     void testIsValidWood() {
@@ -184,7 +576,7 @@ public class WoodServiceTest {
         when(woodTypeRepository.existsById(pineType.getType())).thenReturn(true);
 
         // Create an instance of WoodTransactionalService with the mocked repositories
-        WoodTransactionalService testService = new WoodTransactionalService(woodRepository, woodTypeRepository);
+        WoodTransactionalService testService = new WoodTransactionalService(woodStore, new WoodTypeRegistry(woodTypeRepository), new UploadProperties(), eventPublisher, metrics);
         boolean isValid = testService.isValidWood(wood);
 
         // Assertions
@@ -240,4 +632,14 @@ public class WoodServiceTest {
 
         assertTrue(isWithinRange);
     }
+
+    @Test
+    void testIsBundleWithinPriceRangeComparesWholeCents() {
+        Bundle bundle = new Bundle("1", null, new BigDecimal("20.01"));
+
+        assertTrue(woodService.isBundleWithinPriceRange(bundle, 20.01, 20.01));
+        assertTrue(woodService.isBundleWithinPriceRange(bundle, 20.005, 20.019));
+        assertFalse(woodService.isBundleWithinPriceRange(bundle, 20.011, null));
+        assertFalse(woodService.isBundleWithinPriceRange(bundle, null, 20.009));
+    }
 }
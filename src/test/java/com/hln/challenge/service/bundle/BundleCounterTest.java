@@ -0,0 +1,51 @@
+package com.hln.challenge.service.bundle;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BundleCounterTest {
+
+    private final PriceColumn oak = PriceColumn.of("OAK", new long[]{1, 2, 3}, new long[]{1000, 2500, 1000});
+    private final PriceColumn pine = PriceColumn.of("PINE", new long[]{10, 9}, new long[]{500, 700});
+    private final PriceColumn maple = PriceColumn.of("MAPLE", new long[]{4, 40, 400, 5}, new long[]{300, 300, 100, 0});
+
+    @Test
+    void testCountsSingleType() {
+        assertEquals(3, BundleCounter.count(List.of(oak), 0, Long.MAX_VALUE));
+        assertEquals(2, BundleCounter.count(List.of(oak), 1000, 1000));
+    }
+
+    @Test
+    void testCountsPairsWithinBounds() {
+        // Bundle prices: 3200, 3000, 1700, 1700, 1500, 1500
+        assertEquals(6, BundleCounter.count(List.of(oak, pine), 0, Long.MAX_VALUE));
+        assertEquals(4, BundleCounter.count(List.of(oak, pine), 1500, 1700));
+        assertEquals(0, BundleCounter.count(List.of(oak, pine), 1800, 2900));
+    }
+
+    @Test
+    void testCountMatchesEnumerationForManyTypes() {
+        PriceColumn cedar = PriceColumn.of("CEDAR", new long[]{7, 8}, new long[]{250, 50});
+        List<PriceColumn> columns = List.of(oak, pine, maple, cedar);
+
+        for (long min = 0; min <= 4000; min += 350) {
+            for (long max = min; max <= 4200; max += 450) {
+                long expected = 0;
+                BundleEnumerator enumerator = new BundleEnumerator(columns, min, max);
+                while (enumerator.hasNext()) {
+                    enumerator.next();
+                    expected++;
+                }
+                assertEquals(expected, BundleCounter.count(columns, min, max));
+            }
+        }
+    }
+
+    @Test
+    void testCountPairsAtMost() {
+        assertEquals(3, BundleCounter.countPairsAtMost(new long[]{1, 2, 3}, new long[]{1, 5}, 4));
+    }
+}
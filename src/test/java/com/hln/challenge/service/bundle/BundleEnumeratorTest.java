@@ -0,0 +1,158 @@
+package com.hln.challenge.service.bundle;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BundleEnumeratorTest {
+
+    private final PriceColumn oak = PriceColumn.of("OAK", new long[]{1, 2, 3}, new long[]{1000, 2500, 1000});
+    private final PriceColumn pine = PriceColumn.of("PINE", new long[]{10, 9}, new long[]{500, 700});
+
+    @Test
+    void testOrdersByPriceDescendingThenBundleId() {
+        List<String> result = enumerate(List.of(oak, pine), 0, Long.MAX_VALUE);
+
+        assertEquals(List.of("3200:2-9", "3000:2-10", "1700:1-9", "1700:3-9", "1500:1-10", "1500:3-10"), result);
+    }
+
+    @Test
+    void testAppliesPriceBounds() {
+        List<String> result = enumerate(List.of(oak, pine), 1500, 1700);
+
+        assertEquals(List.of("1700:1-9", "1700:3-9", "1500:1-10", "1500:3-10"), result);
+    }
+
+    @Test
+    void testSingleColumnSkipsPricesAboveMax() {
+        List<String> result = enumerate(List.of(oak), 0, 1000);
+
+        assertEquals(List.of("1000:1", "1000:3"), result);
+    }
+
+    @Test
+    void testEqualPricesOrderByIdText() {
+        PriceColumn cedar = PriceColumn.of("CEDAR", new long[]{9, 10, 100}, new long[]{500, 500, 500});
+
+        // Bundle ids compare as strings, so "10" and "100" come before "9"
+        assertEquals(List.of("500:10", "500:100", "500:9"), enumerate(List.of(cedar), 0, Long.MAX_VALUE));
+    }
+
+    @Test
+    void testResumesStrictlyAfterKey() {
+        List<String> all = enumerate(List.of(oak, pine), 0, Long.MAX_VALUE);
+
+        for (int i = 0; i < all.size(); i++) {
+            String seen = all.get(i);
+            long cents = Long.parseLong(seen.substring(0, seen.indexOf(':')));
+            String[] ids = seen.substring(seen.indexOf(':') + 1).split("-");
+            BundleKey key = BundleCursor.decode(BundleCursor.encode(cents, String.join("-", ids)));
+
+            assertEquals(all.subList(i + 1, all.size()), enumerate(List.of(oak, pine), 0, Long.MAX_VALUE, key));
+        }
+    }
+
+    @Test
+    void testEmptyColumnYieldsNothing() {
+        PriceColumn empty = PriceColumn.of("MAPLE", new long[0], new long[0]);
+
+        assertFalse(new BundleEnumerator(List.of(oak, empty), 0, Long.MAX_VALUE).hasNext());
+    }
+
+    @Test
+    void testMatchesBruteForce() {
+        PriceColumn maple = PriceColumn.of("MAPLE", new long[]{4, 40, 400, 5}, new long[]{300, 300, 100, 0});
+        List<PriceColumn> columns = List.of(oak, pine, maple);
+
+        List<String> expected = new ArrayList<>();
+        List<long[]> rows = new ArrayList<>();
+        for (int i = 0; i < oak.size(); i++) {
+            for (int j = 0; j < pine.size(); j++) {
+                for (int k = 0; k < maple.size(); k++) {
+                    rows.add(new long[]{oak.centsAt(i) + pine.centsAt(j) + maple.centsAt(k), i, j, k});
+                }
+            }
+        }
+        rows.stream()
+                .filter(row -> row[0] >= 1600 && row[0] <= 3100)
+                .map(row -> row[0] + ":" + oak.idAt((int) row[1]) + "-" + pine.idAt((int) row[2]) + "-" + maple.idAt((int) row[3]))
+                .sorted(Comparator.comparing((String row) -> -Long.parseLong(row.substring(0, row.indexOf(':'))))
+                        .thenComparing(row -> row.substring(row.indexOf(':') + 1)))
+                .forEach(expected::add);
+
+        assertEquals(expected, enumerate(columns, 1600, 3100));
+    }
+
+    @Test
+    void testDeepPageSkipsAtMostThePrefixesOfAllButLastColumn() {
+        List<PriceColumn> columns = List.of(column("OAK", 30, 1), column("PINE", 30, 2), column("MAPLE", 30, 3));
+        List<String> all = enumerate(columns, 0, Long.MAX_VALUE);
+        int depth = all.size() / 2;
+        BundleKey key = key(all.get(depth - 1));
+
+        BundleEnumerator page1 = new BundleEnumerator(columns, 0, Long.MAX_VALUE);
+        BundleEnumerator deep = new BundleEnumerator(columns, 0, Long.MAX_VALUE, key);
+        page1.hasNext();
+        deep.hasNext();
+
+        assertEquals(0, page1.skippedAboveMax());
+        // Bounded by the 30 x 30 prefixes of the first two columns, not by the 13500 results before the cursor
+        assertTrue(deep.skippedAboveMax() <= 30 * 30, "skipped " + deep.skippedAboveMax());
+        assertEquals(all.subList(depth, depth + 100),
+                enumerate(columns, 0, Long.MAX_VALUE, key).subList(0, 100));
+    }
+
+    @Test
+    void testDeepPageOfTwoColumnsSkipsAtMostFirstColumn() {
+        List<PriceColumn> columns = List.of(column("OAK", 200, 1), column("PINE", 200, 2));
+        List<String> all = enumerate(columns, 0, Long.MAX_VALUE);
+        BundleEnumerator deep = new BundleEnumerator(columns, 0, Long.MAX_VALUE, key(all.get(all.size() - 1000)));
+        deep.hasNext();
+
+        assertTrue(deep.skippedAboveMax() <= 200, "skipped " + deep.skippedAboveMax());
+    }
+
+    private static PriceColumn column(String type, int size, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] ids = new long[size];
+        long[] cents = new long[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = i + 1;
+            cents[i] = random.nextLong(100, 10_000);
+        }
+        return PriceColumn.of(type, ids, cents);
+    }
+
+    private static BundleKey key(String seen) {
+        long cents = Long.parseLong(seen.substring(0, seen.indexOf(':')));
+        return BundleCursor.decode(BundleCursor.encode(cents, seen.substring(seen.indexOf(':') + 1)));
+    }
+
+    private static List<String> enumerate(List<PriceColumn> columns, long minCents, long maxCents) {
+        return enumerate(columns, minCents, maxCents, null);
+    }
+
+    private static List<String> enumerate(List<PriceColumn> columns, long minCents, long maxCents, BundleKey after) {
+        List<String> result = new ArrayList<>();
+        BundleEnumerator enumerator = new BundleEnumerator(columns, minCents, maxCents, after);
+        while (enumerator.hasNext()) {
+            Combination combination = enumerator.next();
+            StringBuilder id = new StringBuilder();
+            for (int j = 0; j < columns.size(); j++) {
+                if (j > 0) {
+                    id.append('-');
+                }
+                id.append(columns.get(j).idAt(combination.positions()[j]));
+            }
+            result.add(combination.cents() + ":" + id);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,87 @@
+package com.hln.challenge.service.bundle;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BundleSearchTest {
+
+    private final PriceColumn oak = PriceColumn.of("OAK", new long[]{1, 2, 3}, new long[]{1000, 2500, 1000});
+    private final PriceColumn pine = PriceColumn.of("PINE", new long[]{10, 9}, new long[]{500, 700});
+    private final PriceColumn maple = PriceColumn.of("MAPLE", new long[]{4, 40, 400, 5}, new long[]{300, 300, 100, 0});
+
+    @Test
+    void testClosestFirstAndCheaperOnTie() {
+        // Bundle prices: 3200 (2-9), 3000 (2-10), 1700 (1-9, 3-9), 1500 (1-10, 3-10)
+        assertEquals(List.of("1500:1-10", "1500:3-10", "1700:1-9", "1700:3-9", "3000:2-10"),
+                search(List.of(oak, pine), 1600, 0, Long.MAX_VALUE, 5));
+        // 3100 is 100 away from both 3000 and 3200
+        assertEquals(List.of("3000:2-10", "3200:2-9"), search(List.of(oak, pine), 3100, 0, Long.MAX_VALUE, 2));
+    }
+
+    @Test
+    void testTargetOutsideEveryPrice() {
+        assertEquals(List.of("3200:2-9"), search(List.of(oak, pine), 10000, 0, Long.MAX_VALUE, 1));
+        assertEquals(List.of("1500:1-10", "1500:3-10"), search(List.of(oak, pine), 0, 0, Long.MAX_VALUE, 2));
+    }
+
+    @Test
+    void testEmptyColumnYieldsNothing() {
+        PriceColumn empty = PriceColumn.of("CEDAR", new long[0], new long[0]);
+
+        assertTrue(search(List.of(oak, empty), 1000, 0, Long.MAX_VALUE, 3).isEmpty());
+    }
+
+    @Test
+    void testMatchesBruteForce() {
+        List<PriceColumn> columns = List.of(oak, pine, maple);
+        List<String> all = new ArrayList<>();
+        for (int i = 0; i < oak.size(); i++) {
+            for (int j = 0; j < pine.size(); j++) {
+                for (int k = 0; k < maple.size(); k++) {
+                    all.add(oak.centsAt(i) + pine.centsAt(j) + maple.centsAt(k) + ":"
+                            + oak.idAt(i) + "-" + pine.idAt(j) + "-" + maple.idAt(k));
+                }
+            }
+        }
+
+        for (long target = 1300; target <= 3700; target += 75) {
+            for (long[] bounds : new long[][]{{0, Long.MAX_VALUE}, {1600, 3100}, {2000, 2000}}) {
+                long closestTo = target;
+                List<String> expected = all.stream()
+                        .filter(row -> cents(row) >= bounds[0] && cents(row) <= bounds[1])
+                        .sorted(Comparator.comparingLong((String row) -> Math.abs(cents(row) - closestTo))
+                                .thenComparingLong(BundleSearchTest::cents)
+                                .thenComparing(row -> row.substring(row.indexOf(':') + 1)))
+                        .limit(7)
+                        .toList();
+
+                assertEquals(expected, search(columns, target, bounds[0], bounds[1], 7));
+            }
+        }
+    }
+
+    private static long cents(String row) {
+        return Long.parseLong(row.substring(0, row.indexOf(':')));
+    }
+
+    private static List<String> search(List<PriceColumn> columns, long targetCents, long minCents, long maxCents, int k) {
+        List<String> result = new ArrayList<>();
+        for (Combination combination : BundleSearch.closest(columns, targetCents, minCents, maxCents, k)) {
+            StringBuilder id = new StringBuilder();
+            for (int j = 0; j < columns.size(); j++) {
+                if (j > 0) {
+                    id.append('-');
+                }
+                id.append(columns.get(j).idAt(combination.positions()[j]));
+            }
+            result.add(combination.cents() + ":" + id);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,45 @@
+package com.hln.challenge.service.bundle;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CompactBundleIdTest {
+
+    @Test
+    void testRoundTrips() {
+        String id = CompactBundleId.encode(-7, 42, new int[]{0, 3, 65535}, new int[]{5, 0, 1_000_000});
+
+        CompactBundleId.Parts parts = CompactBundleId.decode(id);
+
+        assertEquals(-7, parts.epoch());
+        assertEquals(42, parts.generation());
+        assertArrayEquals(new int[]{0, 3, 65535}, parts.types());
+        assertArrayEquals(new int[]{5, 0, 1_000_000}, parts.positions());
+    }
+
+    @Test
+    void testWidthDependsOnlyOnTypeCount() {
+        String small = CompactBundleId.encode(1, 1, new int[]{0, 1}, new int[]{0, 0});
+        String large = CompactBundleId.encode(Integer.MAX_VALUE, Integer.MAX_VALUE, new int[]{9, 8},
+                new int[]{Integer.MAX_VALUE, Integer.MAX_VALUE});
+
+        assertEquals(28, small.length());
+        assertEquals(small.length(), large.length());
+    }
+
+    @Test
+    void testRejectsMalformedIds() {
+        assertThrows(IllegalArgumentException.class, () -> CompactBundleId.decode("1-2-3"));
+        assertThrows(IllegalArgumentException.class, () -> CompactBundleId.decode("not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> CompactBundleId.decode("AAAAAAAAAAAAAAAAAAAAAAAAAAAA"));
+    }
+
+    @Test
+    void testRejectsTypeNumbersThatDoNotFit() {
+        assertThrows(IllegalArgumentException.class, () -> CompactBundleId.encode(1, 1, new int[]{0, -1}, new int[]{0, 0}));
+        assertThrows(IllegalArgumentException.class, () -> CompactBundleId.encode(1, 1, new int[]{65536}, new int[]{0}));
+    }
+}
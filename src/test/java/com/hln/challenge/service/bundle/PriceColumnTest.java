@@ -0,0 +1,61 @@
+package com.hln.challenge.service.bundle;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PriceColumnTest {
+
+    @Test
+    void testOrdersByPriceDescendingThenIdText() {
+        PriceColumn column = PriceColumn.of("OAK", new long[]{9, 100, 10, 5}, new long[]{500, 500, 500, 700});
+
+        assertEquals(List.of("700:5", "500:10", "500:100", "500:9"), entries(column));
+    }
+
+    @Test
+    void testMatchesReferenceOrder() {
+        SplittableRandom random = new SplittableRandom(42);
+        int n = 5000;
+        long[] ids = new long[n];
+        long[] cents = new long[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = random.nextLong(1, 1_000_000);
+            // Few distinct prices, so most ties are broken by id
+            cents[i] = random.nextLong(0, 50) * 100;
+        }
+
+        assertEquals(referenceOrder(ids, cents), entries(PriceColumn.of("OAK", ids, cents)));
+    }
+
+    @Test
+    void testSortsPricesOutsideTheKeyRange() {
+        // Negative and oversized prices cannot be packed into sort keys and take the comparison sort instead
+        PriceColumn column = PriceColumn.of("OAK", new long[]{3, 1, 2, 4}, new long[]{-5, Long.MAX_VALUE, -5, 0});
+
+        assertEquals(List.of(Long.MAX_VALUE + ":1", "0:4", "-5:2", "-5:3"), entries(column));
+    }
+
+    private static List<String> referenceOrder(long[] ids, long[] cents) {
+        List<long[]> rows = new ArrayList<>();
+        for (int i = 0; i < ids.length; i++) {
+            rows.add(new long[]{cents[i], ids[i]});
+        }
+        rows.sort(Comparator.<long[]>comparingLong(row -> -row[0])
+                .thenComparing((a, b) -> PriceColumn.compareIds(a[1], b[1])));
+        return rows.stream().map(row -> row[0] + ":" + row[1]).toList();
+    }
+
+    private static List<String> entries(PriceColumn column) {
+        List<String> entries = new ArrayList<>();
+        for (int i = 0; i < column.size(); i++) {
+            entries.add(column.centsAt(i) + ":" + column.idAt(i));
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,87 @@
+package com.hln.challenge.service.cache;
+
+import com.hln.challenge.config.BundleCacheProperties;
+import com.hln.challenge.service.dto.Bundle;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class BundleResultCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void testHitsOnlyAtTheSameGenerations() {
+        BundleResultCache cache = cache(10, 100);
+        BundleResultCache.Key key = new BundleResultCache.Key(List.of("OAK", "PINE"), 0, Long.MAX_VALUE);
+
+        List<Bundle> first = cache.get(key, new long[]{1, 1}, loader(2));
+        assertSame(first, cache.get(key, new long[]{1, 1}, loader(2)));
+        cache.get(key, new long[]{1, 2}, loader(2));
+
+        assertEquals(2, loads.get());
+        assertEquals(new BundleResultCache.Stats(1, 2, 0, 1, 2), cache.stats());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedByEntries() {
+        BundleResultCache cache = cache(2, 100);
+        BundleResultCache.Key oak = new BundleResultCache.Key(List.of("OAK"), 0, Long.MAX_VALUE);
+        BundleResultCache.Key pine = new BundleResultCache.Key(List.of("PINE"), 0, Long.MAX_VALUE);
+        BundleResultCache.Key maple = new BundleResultCache.Key(List.of("MAPLE"), 0, Long.MAX_VALUE);
+
+        cache.get(oak, new long[]{1}, loader(1));
+        cache.get(pine, new long[]{1}, loader(1));
+        cache.get(oak, new long[]{1}, loader(1));
+        cache.get(maple, new long[]{1}, loader(1));
+        cache.get(oak, new long[]{1}, loader(1));
+        cache.get(pine, new long[]{1}, loader(1));
+
+        // PINE was the least recently used when MAPLE came in
+        assertEquals(4, loads.get());
+        assertEquals(2, cache.stats().evictions());
+        assertEquals(2.0, meterRegistry.get("cache.evictions").functionCounter().count());
+    }
+
+    @Test
+    void testEvictsToStayWithinBundleWeight() {
+        BundleResultCache cache = cache(10, 5);
+        BundleResultCache.Key cheap = new BundleResultCache.Key(List.of("OAK"), 0, 1000);
+        BundleResultCache.Key dear = new BundleResultCache.Key(List.of("OAK"), 1000, Long.MAX_VALUE);
+        BundleResultCache.Key all = new BundleResultCache.Key(List.of("OAK"), 0, Long.MAX_VALUE);
+
+        cache.get(cheap, new long[]{1}, loader(3));
+        cache.get(dear, new long[]{1}, loader(3));
+        cache.get(all, new long[]{1}, loader(6));
+
+        // The second list pushed out the first, and a list heavier than the bound is never kept
+        assertEquals(new BundleResultCache.Stats(0, 3, 1, 1, 3), cache.stats());
+    }
+
+    private BundleResultCache cache(int maxEntries, long maxBundles) {
+        BundleCacheProperties properties = new BundleCacheProperties();
+        properties.setMaxEntries(maxEntries);
+        properties.setMaxBundles(maxBundles);
+        return new BundleResultCache(properties, meterRegistry);
+    }
+
+    private Supplier<List<Bundle>> loader(int size) {
+        return () -> {
+            loads.incrementAndGet();
+            List<Bundle> bundles = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                bundles.add(new Bundle(String.valueOf(i), List.of(), BigDecimal.ONE));
+            }
+            return bundles;
+        };
+    }
+}
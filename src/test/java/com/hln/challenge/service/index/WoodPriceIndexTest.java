@@ -0,0 +1,111 @@
+package com.hln.challenge.service.index;
+
+import com.hln.challenge.persistence.store.TypedPriceRowCallback;
+import com.hln.challenge.persistence.store.WoodStore;
+import com.hln.challenge.service.WoodsChangedEvent;
+import com.hln.challenge.service.bundle.PriceColumn;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class WoodPriceIndexTest {
+
+    private final WoodStore woodStore = mock(WoodStore.class);
+    private final WoodPriceIndex priceIndex = new WoodPriceIndex(woodStore);
+
+    @Test
+    void testRebuildSortsPricesDescending() {
+        when(woodStore.findAllTypes()).thenReturn(List.of("OAK"));
+        stubRows(List.of("OAK"), row("OAK", 1L, 1050), row("OAK", 2L, 9999));
+
+        priceIndex.rebuild();
+        PriceColumn column = priceIndex.column("OAK");
+
+        assertEquals(2, column.size());
+        assertEquals(2L, column.idAt(0));
+        assertEquals(9999L, column.centsAt(0));
+        assertEquals(1050L, column.centsAt(1));
+    }
+
+    @Test
+    void testUnknownTypeIsEmpty() {
+        assertTrue(priceIndex.column("PINE").isEmpty());
+    }
+
+    @Test
+    void testChangeRepublishesOnlyTouchedTypes() {
+        when(woodStore.findAllTypes()).thenReturn(List.of("OAK", "PINE"));
+        stubRows(List.of("OAK", "PINE"), row("OAK", 1L, 1000), row("PINE", 5L, 500));
+        priceIndex.rebuild();
+        PriceColumn pineBefore = priceIndex.column("PINE");
+        PriceColumn oakBefore = priceIndex.column("OAK");
+
+        stubRows(Set.of("OAK"), row("OAK", 1L, 1000), row("OAK", 3L, 100));
+        priceIndex.onWoodsChanged(new WoodsChangedEvent(Set.of("OAK")));
+
+        assertEquals(1, oakBefore.size());
+        assertNotSame(oakBefore, priceIndex.column("OAK"));
+        assertEquals(2, priceIndex.column("OAK").size());
+        assertSame(pineBefore, priceIndex.column("PINE"));
+    }
+
+    @Test
+    void testRefreshBumpsGenerationOfTouchedTypesOnly() {
+        when(woodStore.findAllTypes()).thenReturn(List.of("OAK", "PINE"));
+        assertEquals(0, priceIndex.generation("OAK"));
+
+        priceIndex.rebuild();
+        priceIndex.onWoodsChanged(new WoodsChangedEvent(Set.of("OAK")));
+
+        assertEquals(2, priceIndex.generation("OAK"));
+        assertEquals(1, priceIndex.generation("PINE"));
+        assertEquals(0, priceIndex.generation("MAPLE"));
+    }
+
+    @Test
+    void testVersionedColumnKeepsTypeNumberAcrossRefreshes() {
+        when(woodStore.findAllTypes()).thenReturn(List.of("OAK", "PINE"));
+        priceIndex.rebuild();
+        int oak = priceIndex.versioned("OAK").ordinal();
+
+        stubRows(Set.of("OAK"), row("OAK", 1L, 1000));
+        priceIndex.onWoodsChanged(new WoodsChangedEvent(Set.of("OAK")));
+        WoodPriceIndex.VersionedColumn versioned = priceIndex.versioned("OAK");
+
+        assertEquals(oak, versioned.ordinal());
+        assertEquals(2, versioned.generation());
+        assertEquals(1, versioned.column().size());
+        assertSame(versioned.column(), priceIndex.versioned(oak).orElseThrow().column());
+        assertTrue(priceIndex.versioned(2).isEmpty());
+    }
+
+    // Makes the store stream the rows, in the given order, when asked for exactly these types
+    private void stubRows(Collection<String> types, Row... rows) {
+        doAnswer(invocation -> {
+            TypedPriceRowCallback callback = invocation.getArgument(1);
+            for (Row row : rows) {
+                callback.row(row.type(), row.id(), row.cents());
+            }
+            return null;
+        }).when(woodStore).forEachByTypesSorted(eq(types), any());
+    }
+
+    private static Row row(String type, long id, long cents) {
+        return new Row(type, id, cents);
+    }
+
+    private record Row(String type, long id, long cents) {
+    }
+}
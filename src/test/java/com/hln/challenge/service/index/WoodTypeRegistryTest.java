@@ -0,0 +1,81 @@
+package com.hln.challenge.service.index;
+
+import com.hln.challenge.persistence.models.WoodType;
+import com.hln.challenge.persistence.repository.WoodTypeRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WoodTypeRegistryTest {
+
+    private final WoodTypeRepository woodTypeRepository = mock(WoodTypeRepository.class);
+    private final WoodTypeRegistry registry = new WoodTypeRegistry(woodTypeRepository);
+
+    @Test
+    void testPreloadedTypesNeedNoQuery() {
+        when(woodTypeRepository.findAll()).thenReturn(List.of(new WoodType("OAK"), new WoodType("PINE")));
+
+        registry.reload();
+
+        assertTrue(registry.exists("OAK"));
+        assertEquals("PINE", registry.find("PINE").orElseThrow().getType());
+        verify(woodTypeRepository, never()).existsById(anyString());
+        verify(woodTypeRepository, never()).findById(anyString());
+    }
+
+    @Test
+    void testUnknownTypeFallsBackToRepository() {
+        when(woodTypeRepository.existsById("MAPLE")).thenReturn(true);
+
+        assertTrue(registry.exists("MAPLE"));
+        assertTrue(registry.exists("MAPLE"));
+        assertFalse(registry.exists("BIRCH"));
+        assertFalse(registry.exists("BIRCH"));
+        assertFalse(registry.find("BIRCH").isPresent());
+
+        verify(woodTypeRepository, times(1)).existsById("MAPLE");
+        verify(woodTypeRepository, times(1)).existsById("BIRCH");
+        verify(woodTypeRepository, never()).findById("BIRCH");
+    }
+
+    @Test
+    void testUnknownTypeIsForgottenOnCreateAndReload() {
+        when(woodTypeRepository.save(any(WoodType.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        assertFalse(registry.exists("BIRCH"));
+
+        registry.getOrCreate("BIRCH");
+        assertTrue(registry.exists("BIRCH"));
+
+        // Inserted outside the application after it was found missing
+        assertFalse(registry.exists("CEDAR"));
+        when(woodTypeRepository.findAll()).thenReturn(List.of(new WoodType("BIRCH"), new WoodType("CEDAR")));
+        registry.reload();
+        assertTrue(registry.exists("CEDAR"));
+    }
+
+    @Test
+    void testGetOrCreateRegistersNewType() {
+        when(woodTypeRepository.findById("BIRCH")).thenReturn(Optional.empty());
+        when(woodTypeRepository.save(any(WoodType.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        WoodType created = registry.getOrCreate("BIRCH");
+
+        assertEquals("BIRCH", created.getType());
+        assertTrue(registry.exists("BIRCH"));
+        assertEquals(created, registry.getOrCreate("BIRCH"));
+        verify(woodTypeRepository, times(1)).save(any(WoodType.class));
+        verify(woodTypeRepository, never()).existsById("BIRCH");
+    }
+}
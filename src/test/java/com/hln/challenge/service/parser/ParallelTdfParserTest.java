@@ -0,0 +1,108 @@
+package com.hln.challenge.service.parser;
+
+import com.hln.challenge.exception.BadRequestException;
+import com.hln.challenge.exception.TdfParseException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ParallelTdfParserTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.createTempFile("parallel-tdf-", ".tdf");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        pool.shutdown();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    void testMatchesSequentialParseAcrossManyRanges() throws IOException {
+        Random random = new Random(42);
+        StringBuilder content = new StringBuilder("id\tprice\n");
+        TreeMap<Long, Long> expected = new TreeMap<>();
+        for (int i = 0; i < 5000; i++) {
+            long id = 1 + random.nextInt(3000);
+            long cents = expected.computeIfAbsent(id, key -> (long) random.nextInt(100000));
+            content.append(id).append("\t\t$").append(cents / 100).append('.').append(cents % 100 / 10).append(cents % 10)
+                    .append(random.nextBoolean() ? "\tOAK" : "").append(random.nextInt(10) == 0 ? "\n\n" : "\n");
+        }
+        write(content.toString());
+
+        // Tiny ranges force range boundaries through every part of a line
+        ParallelTdfParser.ParsedRows rows = ParallelTdfParser.parse(file, pool, 64);
+
+        assertArrayEquals(expected.keySet().stream().mapToLong(Long::longValue).toArray(), rows.ids());
+        assertArrayEquals(expected.values().stream().mapToLong(Long::longValue).toArray(), rows.cents());
+        assertEquals(5000, TdfParser.parse(new ByteArrayInputStream(Files.readAllBytes(file)), (id, cents) -> { }));
+    }
+
+    @Test
+    void testParsesLastLineWithoutNewline() throws IOException {
+        write("2\t$2.00\n1\t$1.00");
+
+        ParallelTdfParser.ParsedRows rows = ParallelTdfParser.parse(file, pool, 4);
+
+        assertArrayEquals(new long[]{1, 2}, rows.ids());
+        assertArrayEquals(new long[]{100, 200}, rows.cents());
+    }
+
+    @Test
+    void testReportsAbsoluteLineOfFirstBadRecord() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 1; i <= 200; i++) {
+            content.append(i).append(i == 150 || i == 180 ? "\t$1x.00\n" : "\t$1.00\n");
+        }
+        write(content.toString());
+
+        TdfParseException e = assertThrows(TdfParseException.class, () -> ParallelTdfParser.parse(file, pool, 32));
+
+        assertEquals(150, e.getLine());
+        assertEquals(7, e.getColumn());
+    }
+
+    @Test
+    void testRejectsConflictingDuplicatesInDifferentRanges() throws IOException {
+        StringBuilder content = new StringBuilder("7\t$1.00\n");
+        for (int i = 100; i < 300; i++) {
+            content.append(i).append("\t$1.00\n");
+        }
+        write(content.append("7\t$2.00\n").toString());
+
+        assertThrows(BadRequestException.class, () -> ParallelTdfParser.parse(file, pool, 32));
+    }
+
+    @Test
+    void testHeaderOnlyAllowedOnFirstLine() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 1; i < 100; i++) {
+            content.append(i).append("\t$1.00\n");
+        }
+        write(content.append("id\tprice\n").toString());
+
+        assertThrows(TdfParseException.class, () -> ParallelTdfParser.parse(file, pool, 32));
+    }
+
+    private void write(String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,67 @@
+package com.hln.challenge.service.parser;
+
+import com.hln.challenge.exception.TdfParseException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TdfParserTest {
+
+    @Test
+    void testParsesHeaderExtraTabsAndTrailingFields() throws IOException {
+        List<String> rows = parse("id\tprice\r\n1686693081\t$181.7\n97521692\t\t$5.80\tOAK\n\n3\t$7\n");
+
+        assertEquals(List.of("1686693081:18170", "97521692:580", "3:700"), rows);
+    }
+
+    @Test
+    void testParsesLastLineWithoutNewline() throws IOException {
+        assertEquals(List.of("1:1000", "2:1550"), parse("1\t$10.0\n2\t$15.50"));
+    }
+
+    @Test
+    void testFeedsInArbitrarySlices() {
+        byte[] bytes = "ID PRICE\n12\t$3.45\n678\t$9.1\n".getBytes(StandardCharsets.US_ASCII);
+        List<String> rows = new ArrayList<>();
+        TdfParser parser = new TdfParser((id, cents) -> rows.add(id + ":" + cents));
+        for (byte b : bytes) {
+            parser.feed(new byte[]{b}, 0, 1);
+        }
+
+        assertEquals(2, parser.finish());
+        assertEquals(List.of("12:345", "678:910"), rows);
+    }
+
+    @Test
+    void testReportsLineAndColumnOfFirstBadRecord() {
+        TdfParseException e = assertThrows(TdfParseException.class, () -> parse("1\t$10.0\n2\t$1x.0\n"));
+
+        assertEquals(2, e.getLine());
+        assertEquals(5, e.getColumn());
+    }
+
+    @Test
+    void testRejectsMalformedRecords() {
+        assertThrows(TdfParseException.class, () -> parse("1\tinvalidPrice"));
+        assertThrows(TdfParseException.class, () -> parse("1\t\tOAK\n"));
+        assertThrows(TdfParseException.class, () -> parse("2t\n"));
+        assertThrows(TdfParseException.class, () -> parse("5\n"));
+        assertThrows(TdfParseException.class, () -> parse("5\t$1.234\n"));
+        assertThrows(TdfParseException.class, () -> parse("0\t$1.00\n"));
+        assertThrows(TdfParseException.class, () -> parse("99999999999999999999\t$1.00\n"));
+        assertThrows(TdfParseException.class, () -> parse("1\t$1.00\nid\tprice\n"));
+    }
+
+    private static List<String> parse(String content) throws IOException {
+        List<String> rows = new ArrayList<>();
+        TdfParser.parse(new ByteArrayInputStream(content.getBytes(StandardCharsets.US_ASCII)), (id, cents) -> rows.add(id + ":" + cents));
+        return rows;
+    }
+}